@@ -0,0 +1,46 @@
+package org.parboiled.examples;
+
+/**
+ * Input sizes used by the grammar benchmarks
+ *
+ * <p>Benchmarks build their input by repeating a grammar specific unit of
+ * text; the size only tells how many times this unit is repeated.</p>
+ */
+public enum InputSize
+{
+    SMALL(1),
+    MEDIUM(50),
+    LARGE(2000),
+    ;
+
+    private final int repetitions;
+
+    InputSize(final int repetitions)
+    {
+        this.repetitions = repetitions;
+    }
+
+    public int getRepetitions()
+    {
+        return repetitions;
+    }
+
+    /**
+     * Repeat a unit of text, separating each repetition with a separator
+     *
+     * @param unit the text to repeat
+     * @param separator the separator
+     * @return the resulting text
+     */
+    public String repeat(final String unit, final String separator)
+    {
+        final StringBuilder sb = new StringBuilder(repetitions
+            * (unit.length() + separator.length()));
+        for (int i = 0; i < repetitions; i++) {
+            if (i > 0)
+                sb.append(separator);
+            sb.append(unit);
+        }
+        return sb.toString();
+    }
+}
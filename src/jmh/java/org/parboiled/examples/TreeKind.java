@@ -0,0 +1,25 @@
+package org.parboiled.examples;
+
+/**
+ * Parse trees built by the grammar benchmarks
+ *
+ * <p>{@link #COMPACT} trees are built by a {@link CompactTreeParseRunner},
+ * which does not locate parse errors; benchmark inputs match, so that the
+ * reporting parse runners used otherwise only run once as well.</p>
+ */
+public enum TreeKind
+{
+    /**
+     * No tree, the node of the root rule being suppressed
+     */
+    NONE,
+    /**
+     * A tree of {@code Node}s
+     */
+    NODES,
+    /**
+     * A {@link CompactParseTree}
+     */
+    COMPACT,
+    ;
+}
@@ -0,0 +1,82 @@
+package org.parboiled.examples.calculators;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.examples.InputSize;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks all calculator parsers over the same expressions
+ *
+ * <p>The expression only uses the syntax common to all of them: non negative
+ * integers, the four basic operators and parentheses.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class CalculatorParserBenchmark {
+
+    private static final String UNIT = "12+345*(6-78)/9";
+
+    @Param({ "0", "1", "2", "3", "4" })
+    public int version;
+
+    @Param
+    public InputSize size;
+
+    @Param({ "true", "false" })
+    public boolean buildTree;
+
+    private Rule rule;
+    private String input;
+
+    @Setup
+    public void setup() {
+        final CalculatorParser<?> parser = createParser(version);
+        rule = buildTree ? parser.inputLine()
+            : parser.inputLine().suppressNode();
+        input = size.repeat(UNIT, "-");
+        if (!parse().matched)
+            throw new IllegalStateException("benchmark input does not match");
+    }
+
+    @Benchmark
+    public ParsingResult<?> parse() {
+        return new ReportingParseRunner(rule).run(input);
+    }
+
+    private static CalculatorParser<?> createParser(final int version) {
+        switch (version) {
+            case 0:
+                return Parboiled.createParser(CalculatorParser0.class);
+            case 1:
+                return Parboiled.createParser(CalculatorParser1.class);
+            case 2:
+                return Parboiled.createParser(CalculatorParser2.class);
+            case 3:
+                return Parboiled.createParser(CalculatorParser3.class);
+            case 4:
+                return Parboiled.createParser(CalculatorParser4.class);
+            default:
+                throw new IllegalArgumentException("no such calculator: "
+                    + version);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.parboiled.examples.indenting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.buffers.IndentDedentInputBuffer;
+import org.parboiled.examples.CompactTreeParseRunner;
+import org.parboiled.examples.InputSize;
+import org.parboiled.examples.TreeKind;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class SimpleIndentBenchmark {
+
+    private static final String UNIT = "NodeA\n\tNodeB\n\tNodeC\n\t\tNodeD\n"
+        + "\t\tNodeE\n\t\t\tNodeF\n\tNodeG";
+
+    @Param
+    public InputSize size;
+
+    @Param
+    public TreeKind tree;
+
+    private Rule rule;
+    private CompactTreeParseRunner<Object> compactRunner;
+    private char[] input;
+
+    @Setup
+    public void setup() {
+        final SimpleIndent parser = Parboiled.createParser(SimpleIndent.class);
+        rule = tree == TreeKind.NONE ? parser.parent().suppressNode() : parser.parent();
+        if (tree == TreeKind.COMPACT)
+            compactRunner = new CompactTreeParseRunner<Object>(rule);
+        input = size.repeat(UNIT, "\n").toCharArray();
+        if (!parse().matched)
+            throw new IllegalStateException("benchmark input does not match");
+    }
+
+    /*
+     * The indent/dedent buffer is part of the measurement: it is how this
+     * grammar is meant to be run (see Main)
+     */
+    @Benchmark
+    public ParsingResult<?> parse() {
+        final IndentDedentInputBuffer buffer
+            = new IndentDedentInputBuffer(input, 2, ";", true, true);
+        if (compactRunner != null)
+            return compactRunner.run(buffer);
+        return new ReportingParseRunner(rule).run(buffer);
+    }
+}
@@ -0,0 +1,65 @@
+package org.parboiled.examples.java;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.examples.CompactTreeParseRunner;
+import org.parboiled.examples.InputSize;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Parsing with a tree of nodes against parsing with a compact tree of the
+ * same shape, binary expressions going through the rule cascade in both; run
+ * with -prof gc to compare allocation rates
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class CompactParseTreeBenchmark {
+
+    @Param
+    public InputSize size;
+
+    private Rule rule;
+    private CompactTreeParseRunner<Object> compactRunner;
+    private String input;
+
+    @Setup
+    public void setup() {
+        final JavaParser parser = Parboiled.createParser(JavaParser.class);
+        rule = parser.compilationUnit();
+        compactRunner = new CompactTreeParseRunner<Object>(rule);
+        input = JavaParserBenchmark.HEADER
+            + size.repeat(JavaParserBenchmark.UNIT, "\n");
+        if (!nodeTree().matched || !compactTree().matched)
+            throw new IllegalStateException("benchmark input does not match");
+        System.out.printf("\n%d compact nodes per input\n",
+            compactRunner.getParseTree().getNodeCount());
+    }
+
+    @Benchmark
+    public ParsingResult<?> nodeTree() {
+        return new BasicParseRunner<Object>(rule).run(input);
+    }
+
+    @Benchmark
+    public ParsingResult<?> compactTree() {
+        return compactRunner.run(input);
+    }
+}
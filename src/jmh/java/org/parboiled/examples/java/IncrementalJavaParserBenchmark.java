@@ -0,0 +1,63 @@
+package org.parboiled.examples.java;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parboiled.examples.InputSize;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Latency of a one character edit in the middle of a file, re-parsed
+ * incrementally or as a whole
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class IncrementalJavaParserBenchmark {
+
+    @Param
+    public InputSize size;
+
+    private IncrementalJavaParser parser;
+    private IncrementalJavaParser.Result previous;
+    private int offset;
+
+    @Setup
+    public void setup() {
+        parser = new IncrementalJavaParser();
+        final String input = JavaParserBenchmark.HEADER
+            + size.repeat(JavaParserBenchmark.UNIT, "\n");
+        previous = parser.parse(input);
+        if (!previous.isMatched())
+            throw new IllegalStateException("benchmark input does not match");
+        // the "0" of "int sum = 0;" in the middle unit
+        int statement = input.indexOf("int sum = 0;", input.length() / 2);
+        if (statement < 0)
+            statement = input.lastIndexOf("int sum = 0;");
+        offset = statement + 10;
+        if (!reparse().isIncremental())
+            throw new IllegalStateException("benchmark edit is not incremental");
+    }
+
+    @Benchmark
+    public IncrementalJavaParser.Result reparse() {
+        return parser.reparse(previous, offset, 1, "1");
+    }
+
+    @Benchmark
+    public IncrementalJavaParser.Result fullParse() {
+        return parser.parse(previous.getText());
+    }
+}
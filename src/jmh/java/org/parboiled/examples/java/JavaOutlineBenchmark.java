@@ -0,0 +1,99 @@
+package org.parboiled.examples.java;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parboiled.Parboiled;
+import org.parboiled.examples.InputSize;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Parsing without a parse tree, against reporting declarations with the
+ * statements validated and with method bodies skipped
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class JavaOutlineBenchmark {
+
+    @Param
+    public InputSize size;
+
+    private BasicParseRunner<Object> parseRunner;
+    private BasicParseRunner<Object> declarationRunner;
+    private BasicParseRunner<Object> outlineRunner;
+    private String input;
+
+    private static final class Counter implements JavaDeclarationListener {
+        int events;
+
+        public void onPackage(String name, int start, int end) {
+            events++;
+        }
+
+        public void onImport(String name, boolean isStatic, int start, int end) {
+            events++;
+        }
+
+        public void onTypeStart(TypeKind kind, String name, int start) {
+            events++;
+        }
+
+        public void onTypeEnd(int end) {
+        }
+
+        public void onMethod(String name, boolean isConstructor, int start, int end) {
+            events++;
+        }
+
+        public void onField(String name, int start, int end) {
+            events++;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        parseRunner = new BasicParseRunner<Object>(
+            Parboiled.createParser(JavaParser.class).compilationUnit().suppressNode());
+        declarationRunner = runner(Parboiled.createParser(JavaDeclarationParser.class));
+        outlineRunner = runner(Parboiled.createParser(OutlineJavaParser.class));
+        input = JavaParserBenchmark.HEADER
+            + size.repeat(JavaParserBenchmark.UNIT, "\n");
+        if (!parse().matched || !declarations().matched || !outline().matched)
+            throw new IllegalStateException("benchmark input does not match");
+    }
+
+    private static BasicParseRunner<Object> runner(JavaDeclarationParser parser) {
+        parser.setListener(new Counter());
+        return new BasicParseRunner<Object>(parser.compilationUnit().suppressNode());
+    }
+
+    @Benchmark
+    public ParsingResult<?> parse() {
+        return parseRunner.run(input);
+    }
+
+    @Benchmark
+    public ParsingResult<?> declarations() {
+        return declarationRunner.run(input);
+    }
+
+    @Benchmark
+    public ParsingResult<?> outline() {
+        return outlineRunner.run(input);
+    }
+}
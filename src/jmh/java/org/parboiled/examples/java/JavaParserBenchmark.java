@@ -0,0 +1,91 @@
+package org.parboiled.examples.java;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.examples.InputSize;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class JavaParserBenchmark {
+
+    static final String HEADER = "package org.example.bench;\n\n"
+        + "import java.util.ArrayList;\n"
+        + "import java.util.List;\n"
+        + "import static java.lang.Math.max;\n\n";
+
+    static final String UNIT = "/**\n"
+        + " * A generated class.\n"
+        + " */\n"
+        + "@SuppressWarnings(\"unchecked\")\n"
+        + "public class Generated<T extends Comparable<T>> extends Object implements Runnable {\n"
+        + "    private static final int LIMIT = 0x7f + 12 * (3 - 1);\n"
+        + "    private final List<T> values = new ArrayList<T>();\n"
+        + "    protected String name = \"generated\\t\" + 'c';\n\n"
+        + "    public Generated(String name) {\n"
+        + "        this.name = name; // trailing comment\n"
+        + "    }\n\n"
+        + "    public void run() {\n"
+        + "        int sum = 0;\n"
+        + "        for (int i = 0; i < LIMIT; i++) {\n"
+        + "            sum += i % 3 == 0 ? i << 1 : max(i, sum) / 2;\n"
+        + "        }\n"
+        + "        /* block\n"
+        + "           comment */\n"
+        + "        if (sum > 100 && !values.isEmpty()) {\n"
+        + "            values.clear();\n"
+        + "        } else {\n"
+        + "            name = name.substring(1).trim() + sum;\n"
+        + "        }\n"
+        + "    }\n\n"
+        + "    public T first() throws IllegalStateException {\n"
+        + "        try {\n"
+        + "            return values.get(0);\n"
+        + "        } catch (IndexOutOfBoundsException e) {\n"
+        + "            throw new IllegalStateException(e);\n"
+        + "        }\n"
+        + "    }\n"
+        + "}\n";
+
+    @Param
+    public InputSize size;
+
+    @Param({ "true", "false" })
+    public boolean buildTree;
+
+    private Rule rule;
+    private String input;
+
+    @Setup
+    public void setup() {
+        final JavaParser parser = Parboiled.createParser(JavaParser.class);
+        rule = buildTree ? parser.compilationUnit()
+            : parser.compilationUnit().suppressNode();
+        input = HEADER + size.repeat(UNIT, "\n");
+        if (!parse().matched)
+            throw new IllegalStateException("benchmark input does not match");
+    }
+
+    @Benchmark
+    public ParsingResult<?> parse() {
+        return new ReportingParseRunner(rule).run(input);
+    }
+}
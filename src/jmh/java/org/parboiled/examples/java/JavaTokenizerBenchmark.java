@@ -0,0 +1,80 @@
+package org.parboiled.examples.java;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.buffers.DefaultInputBuffer;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.examples.InputSize;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Throughput of the tokenizer alone, and of token-stream parsing (tokenizing
+ * included) against scannerless parsing of the same input; tokens per second
+ * are the tokenize score times the token count printed at setup
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class JavaTokenizerBenchmark {
+
+    @Param
+    public InputSize size;
+
+    private InputBuffer input;
+    private int length;
+    private Rule tokenRule;
+    private Rule scannerlessRule;
+
+    @Setup
+    public void setup() {
+        final String text = JavaParserBenchmark.HEADER
+            + size.repeat(JavaParserBenchmark.UNIT, "\n");
+        input = new DefaultInputBuffer(text.toCharArray());
+        length = text.length();
+        tokenRule = Parboiled.createParser(TokenJavaParser.class)
+            .compilationUnit().suppressNode();
+        scannerlessRule = Parboiled.createParser(JavaParser.class)
+            .compilationUnit().suppressNode();
+        if (!parseTokens().matched || !parseScannerless().matched)
+            throw new IllegalStateException("benchmark input does not match");
+        System.out.printf("\n%d tokens per input\n",
+            tokenize().getTokenCount());
+    }
+
+    @Benchmark
+    public JavaTokenBuffer tokenize() {
+        return JavaTokenizer.tokenize(translated());
+    }
+
+    @Benchmark
+    public ParsingResult<?> parseTokens() {
+        return new ReportingParseRunner(tokenRule).run(
+            JavaTokenizer.tokenize(translated()));
+    }
+
+    @Benchmark
+    public ParsingResult<?> parseScannerless() {
+        return new ReportingParseRunner(scannerlessRule).run(input);
+    }
+
+    private UnicodeEscapeInputBuffer translated() {
+        return new UnicodeEscapeInputBuffer(input, length);
+    }
+}
@@ -0,0 +1,96 @@
+package org.parboiled.examples.java;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parboiled.buffers.DefaultInputBuffer;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.examples.InputSize;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Indexing throughput, and latency of index lookups of names which are
+ * declared in each of FILES files and of names which are not declared at all
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class SymbolIndexBenchmark {
+
+    private static final int FILES = 100;
+
+    @Param
+    public InputSize size;
+
+    private JavaSymbolIndexer indexer;
+    private InputBuffer input;
+    private File indexFile;
+    private SymbolIndex index;
+    private String[] names;
+    private String[] undeclaredNames;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        indexer = new JavaSymbolIndexer();
+        input = new DefaultInputBuffer((JavaParserBenchmark.HEADER
+            + size.repeat(JavaParserBenchmark.UNIT, "\n")).toCharArray());
+        SymbolIndexBuilder builder = new SymbolIndexBuilder();
+        for (int i = 0; i < FILES; i++) {
+            if (!indexer.index(input, builder, builder.addFile("File" + i + ".java", 0, 0)))
+                throw new IllegalStateException("benchmark input does not match");
+        }
+        indexFile = File.createTempFile("symbols", ".idx");
+        builder.write(indexFile);
+        index = SymbolIndex.open(indexFile);
+        names = new String[index.getNameCount()];
+        for (int i = 0; i < names.length; i++) names[i] = index.getName(i);
+        undeclaredNames = new String[names.length];
+        for (int i = 0; i < names.length; i++) undeclaredNames[i] = names[i] + "$undeclared";
+        System.out.printf("\n%d names, %d declarations per input\n", names.length,
+            builder.getDeclarationCount() / FILES);
+    }
+
+    @TearDown
+    public void tearDown() {
+        index = null;
+        if (!indexFile.delete()) indexFile.deleteOnExit();
+    }
+
+    @Benchmark
+    public SymbolIndexBuilder index() {
+        SymbolIndexBuilder builder = new SymbolIndexBuilder();
+        indexer.index(input, builder, builder.addFile("File.java", 0, 0));
+        return builder;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<SymbolIndex.Declaration> findDeclared() {
+        return index.find(names[(next++ & Integer.MAX_VALUE) % names.length]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<SymbolIndex.Declaration> findUndeclared() {
+        return index.find(undeclaredNames[(next++ & Integer.MAX_VALUE) % undeclaredNames.length]);
+    }
+}
@@ -0,0 +1,68 @@
+package org.parboiled.examples.json;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.examples.CompactTreeParseRunner;
+import org.parboiled.examples.InputSize;
+import org.parboiled.examples.TreeKind;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class JsonParserBenchmark
+{
+    private static final String UNIT = "{\n"
+        + "  \"id\": 123456, \"ratio\": -0.25e-3, \"valid\": true,\n"
+        + "  \"name\": \"some \\\"quoted\\\" text \\u00e9\\n\",\n"
+        + "  \"tags\": [ \"a\", \"b\", \"c\" ],\n"
+        + "  \"nested\": { \"empty\": {}, \"list\": [], \"nothing\": null }\n"
+        + "}";
+
+    @Param
+    public InputSize size;
+
+    @Param
+    public TreeKind tree;
+
+    private Rule rule;
+    private CompactTreeParseRunner<Object> compactRunner;
+    private String input;
+
+    @Setup
+    public void setup()
+    {
+        final JsonParser parser = Parboiled.createParser(JsonParser.class);
+        rule = tree == TreeKind.NONE ? parser.jsonText().suppressNode() : parser.jsonText();
+        if (tree == TreeKind.COMPACT)
+            compactRunner = new CompactTreeParseRunner<Object>(rule);
+        input = '[' + size.repeat(UNIT, ",\n") + ']';
+        if (!parse().matched)
+            throw new IllegalStateException("benchmark input does not match");
+    }
+
+    @Benchmark
+    public ParsingResult<?> parse()
+    {
+        if (compactRunner != null)
+            return compactRunner.run(input);
+        return new ReportingParseRunner(rule).run(input);
+    }
+}
@@ -0,0 +1,75 @@
+package org.parboiled.examples.sparql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.annotations.BuildParseTree;
+import org.parboiled.examples.InputSize;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class SparqlParserBenchmark {
+
+    private static final String HEADER = "# generated query\n"
+        + "PREFIX foaf: <http://xmlns.com/foaf/0.1/>\n"
+        + "PREFIX dc: <http://purl.org/dc/elements/1.1/>\n"
+        + "SELECT DISTINCT ?name ?mbox ?title\n"
+        + "WHERE {\n";
+
+    private static final String UNIT = "  ?x foaf:name ?name .\n"
+        + "  ?x foaf:mbox ?mbox .\n"
+        + "  OPTIONAL { ?x dc:title ?title }\n"
+        + "  FILTER (?name != \"nobody\" && ?age > 18)";
+
+    private static final String FOOTER = "\n}\nORDER BY ?name LIMIT 10";
+
+    /*
+     * SparqlParser does not build a parse tree; this subclass does, so that
+     * both modes can be measured
+     */
+    @BuildParseTree
+    public static class TreeBuildingSparqlParser extends SparqlParser {
+    }
+
+    @Param
+    public InputSize size;
+
+    @Param({ "true", "false" })
+    public boolean buildTree;
+
+    private Rule rule;
+    private String input;
+
+    @Setup
+    public void setup() {
+        final SparqlParser parser = Parboiled.createParser(buildTree
+            ? TreeBuildingSparqlParser.class : SparqlParser.class);
+        rule = buildTree ? parser.query() : parser.query().suppressNode();
+        input = HEADER + size.repeat(UNIT, " .\n") + FOOTER;
+        if (!parse().matched)
+            throw new IllegalStateException("benchmark input does not match");
+    }
+
+    @Benchmark
+    public ParsingResult<?> parse() {
+        return new ReportingParseRunner(rule).run(input);
+    }
+}
@@ -0,0 +1,69 @@
+package org.parboiled.examples.time;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.examples.InputSize;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the time parser
+ *
+ * <p>The grammar only accepts inputs of at most eight characters, so instead
+ * of repeating the input, the sizes map to the three alternatives of {@link
+ * TimeParser#time()}, tried in order: the larger the size, the later the
+ * alternative which matches.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class TimeParserBenchmark {
+
+    @Param
+    public InputSize size;
+
+    @Param({ "true", "false" })
+    public boolean buildTree;
+
+    private Rule rule;
+    private String input;
+
+    @Setup
+    public void setup() {
+        final TimeParser parser = Parboiled.createParser(TimeParser.class);
+        rule = buildTree ? parser.time() : parser.time().suppressNode();
+        switch (size) {
+            case SMALL:
+                input = "12:34:56";
+                break;
+            case MEDIUM:
+                input = "123456";
+                break;
+            default:
+                input = "945";
+        }
+        if (!parse().matched)
+            throw new IllegalStateException("benchmark input does not match");
+    }
+
+    @Benchmark
+    public ParsingResult<?> parse() {
+        return new ReportingParseRunner(rule).run(input);
+    }
+}
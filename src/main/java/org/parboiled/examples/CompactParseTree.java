@@ -0,0 +1,227 @@
+package org.parboiled.examples;
+
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.matchers.Matcher;
+
+import java.util.List;
+
+/**
+ * A parse tree stored as parallel arrays of ints, as built by a {@link
+ * CompactTreeParseRunner}
+ *
+ * <p>Each node is an index into five arrays: the id of its matcher, its start
+ * and end indices in the input, its first child and its next sibling, -1
+ * standing for none. Nodes are numbered in the order their rules completed,
+ * children before their parent, so that the root comes last. A node thus
+ * takes 20 bytes, where a {@code Node} of a parse tree takes several
+ * objects.</p>
+ *
+ * <p>Nodes are read through a {@link Cursor}. The tree is reused by the next
+ * run of the parse runner which built it.</p>
+ */
+public final class CompactParseTree {
+
+    private final List<Matcher> matchers;
+    private InputBuffer input;
+    private int[] matcherIds = new int[1024];
+    private int[] starts = new int[1024];
+    private int[] ends = new int[1024];
+    private int[] firstChildren = new int[1024];
+    private int[] nextSiblings = new int[1024];
+    private int count;
+    private int root = -1;
+
+    /**
+     * A position in a {@link CompactParseTree}, which can move to the first
+     * child, the next sibling or the parent of the node it is on
+     */
+    public final class Cursor {
+        private int node;
+        // the ancestors of the node, root first
+        private int[] parents = new int[32];
+        private int depth;
+
+        private Cursor(int node) {
+            this.node = node;
+        }
+
+        /**
+         * @return the node the cursor is on
+         */
+        public int getNode() {
+            return node;
+        }
+
+        /**
+         * @return the number of ancestors of the node, 0 for the root
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public Matcher getMatcher() {
+            return matchers.get(matcherIds[node]);
+        }
+
+        public String getLabel() {
+            return getMatcher().getLabel();
+        }
+
+        public int getStartIndex() {
+            return starts[node];
+        }
+
+        public int getEndIndex() {
+            return ends[node];
+        }
+
+        /**
+         * @return the input text matched by the node
+         */
+        public String getText() {
+            return input.extract(starts[node], ends[node]);
+        }
+
+        public boolean hasChildren() {
+            return firstChildren[node] >= 0;
+        }
+
+        /**
+         * @return true if the cursor moved, false if the node has no children
+         */
+        public boolean toFirstChild() {
+            int child = firstChildren[node];
+            if (child < 0) return false;
+            if (depth == parents.length) {
+                int[] newParents = new int[depth * 2];
+                System.arraycopy(parents, 0, newParents, 0, depth);
+                parents = newParents;
+            }
+            parents[depth++] = node;
+            node = child;
+            return true;
+        }
+
+        /**
+         * @return true if the cursor moved, false if the node is the last child of its parent
+         */
+        public boolean toNextSibling() {
+            int sibling = nextSiblings[node];
+            if (sibling < 0) return false;
+            node = sibling;
+            return true;
+        }
+
+        /**
+         * @return true if the cursor moved, false if the node is the root
+         */
+        public boolean toParent() {
+            if (depth == 0) return false;
+            node = parents[--depth];
+            return true;
+        }
+
+        /**
+         * Moves to the next node in depth first order
+         *
+         * @return true if the cursor moved, false if there is no next node
+         */
+        public boolean toNext() {
+            if (toFirstChild()) return true;
+            int savedDepth = depth;
+            int savedNode = node;
+            while (!toNextSibling()) {
+                if (!toParent()) {
+                    // back to where the cursor was, at the last node
+                    node = savedNode;
+                    depth = savedDepth;
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    CompactParseTree(List<Matcher> matchers) {
+        this.matchers = matchers;
+    }
+
+    /**
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return count;
+    }
+
+    /**
+     * @return the root node, or -1 if the input was not matched
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the memory taken by the arrays of nodes, in bytes
+     */
+    public long getMemory() {
+        return 5L * 4 * matcherIds.length;
+    }
+
+    /**
+     * @return a cursor on the root, or null if the input was not matched
+     */
+    public Cursor cursor() {
+        return root < 0 ? null : new Cursor(root);
+    }
+
+    /**
+     * @param node a node
+     * @return a cursor on the given node, which has no parent as far as the cursor is concerned
+     */
+    public Cursor cursor(int node) {
+        return new Cursor(node);
+    }
+
+    void reset(InputBuffer input) {
+        this.input = input;
+        count = 0;
+        root = -1;
+    }
+
+    void setRoot(int root) {
+        this.root = root;
+    }
+
+    void truncate(int count) {
+        this.count = count;
+    }
+
+    // adds a node whose children are the given nodes, and returns it
+    int add(int matcherId, int start, int end, int[] children, int from, int to) {
+        if (count == matcherIds.length) grow();
+        matcherIds[count] = matcherId;
+        starts[count] = start;
+        ends[count] = end;
+        firstChildren[count] = from < to ? children[from] : -1;
+        nextSiblings[count] = -1;
+        for (int i = from; i < to - 1; i++) {
+            nextSiblings[children[i]] = children[i + 1];
+        }
+        return count++;
+    }
+
+    private void grow() {
+        int capacity = count * 2;
+        matcherIds = copyOf(matcherIds, capacity);
+        starts = copyOf(starts, capacity);
+        ends = copyOf(ends, capacity);
+        firstChildren = copyOf(firstChildren, capacity);
+        nextSiblings = copyOf(nextSiblings, capacity);
+    }
+
+    private int[] copyOf(int[] array, int capacity) {
+        int[] copy = new int[capacity];
+        System.arraycopy(array, 0, copy, 0, count);
+        return copy;
+    }
+}
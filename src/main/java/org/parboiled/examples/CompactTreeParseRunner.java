@@ -0,0 +1,137 @@
+package org.parboiled.examples;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.matchers.ActionMatcher;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.matchers.TestMatcher;
+import org.parboiled.matchers.TestNotMatcher;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parse runner building a {@link CompactParseTree} instead of a tree of
+ * {@code Node}s
+ *
+ * <p>The root rule is run with its node suppressed, so that no {@code Node}
+ * is created at all; nodes are recorded instead as rules match, following the
+ * same rules as parse tree building: a rule gets a node unless it or one of
+ * its ancestors has its node suppressed, or an ancestor has its subnodes
+ * suppressed; the children of a rule whose node is skipped go to its parent;
+ * predicates and actions get no node. Nodes of rules which eventually fail,
+ * or which are part of a predicate, are dropped as soon as this is known, so
+ * that the tree holds no dead nodes.</p>
+ *
+ * <p>Since the parse runs with nodes suppressed, matchers which behave
+ * differently then would record the nodes of what they actually run. Such
+ * matchers implement {@link NodeSensitiveMatcher}, through which they are
+ * made to match as when nodes are built wherever a node is recorded, so that
+ * the tree has the shape of the tree of {@code Node}s.</p>
+ *
+ * <p>The runner does not depend on the grammar; the Java, JSON and indenting
+ * examples are run through it by their benchmarks.</p>
+ *
+ * <p>The tree is reused across runs; see {@link #getParseTree()}.</p>
+ */
+public class CompactTreeParseRunner<V> extends BasicParseRunner<V> {
+
+    /**
+     * A matcher which matches differently when nodes are suppressed, for
+     * instance by not running rules whose nodes would not be built anyway
+     */
+    public interface NodeSensitiveMatcher {
+        /**
+         * Matches as when nodes are not suppressed, whether they are or not
+         */
+        <V> boolean matchWithNodes(MatcherContext<V> context);
+    }
+
+    private final Map<Matcher, Integer> matcherIds = new IdentityHashMap<Matcher, Integer>();
+    private final List<Matcher> matchers = new ArrayList<Matcher>();
+    private final CompactParseTree tree = new CompactParseTree(matchers);
+    // for each rule being run, whether the rules it runs have their nodes suppressed
+    private boolean[] subnodesSuppressed = new boolean[64];
+    private int depth;
+    // the nodes not yet given to a parent, in order
+    private int[] orphans = new int[256];
+    private int orphanCount;
+
+    /**
+     * @param rule the root rule, with or without its node suppressed
+     */
+    public CompactTreeParseRunner(Rule rule) {
+        super(rule.suppressNode());
+    }
+
+    /**
+     * @return the tree built by the last run, until the next one
+     */
+    public CompactParseTree getParseTree() {
+        return tree;
+    }
+
+    @Override
+    public ParsingResult<V> run(InputBuffer inputBuffer) {
+        tree.reset(inputBuffer);
+        depth = 0;
+        orphanCount = 0;
+        ParsingResult<V> result = super.run(inputBuffer);
+        if (result.matched && orphanCount == 1) tree.setRoot(orphans[0]);
+        return result;
+    }
+
+    @Override
+    public boolean match(MatcherContext<?> context) {
+        Matcher matcher = context.getMatcher();
+        // the root is suppressed only to keep nodes from being created
+        boolean nodeSuppressed = depth > 0 && (subnodesSuppressed[depth - 1] || matcher.isNodeSuppressed());
+        if (depth == subnodesSuppressed.length) {
+            boolean[] newSubnodesSuppressed = new boolean[depth * 2];
+            System.arraycopy(subnodesSuppressed, 0, newSubnodesSuppressed, 0, depth);
+            subnodesSuppressed = newSubnodesSuppressed;
+        }
+        subnodesSuppressed[depth++] = nodeSuppressed || matcher.areSubnodesSuppressed();
+        int start = context.getCurrentIndex();
+        int nodeMark = tree.getNodeCount();
+        int orphanMark = orphanCount;
+
+        boolean matched = !nodeSuppressed && matcher instanceof NodeSensitiveMatcher
+            ? ((NodeSensitiveMatcher) matcher).matchWithNodes(context) : matcher.match(context);
+        depth--;
+        if (!matched || matcher instanceof TestMatcher) {
+            tree.truncate(nodeMark);
+            orphanCount = orphanMark;
+            return matched;
+        }
+        if (nodeSuppressed || matcher.isNodeSkipped() || matcher instanceof ActionMatcher
+            || matcher instanceof TestNotMatcher) {
+            return true;
+        }
+
+        int node = tree.add(idOf(matcher), start, context.getCurrentIndex(), orphans, orphanMark, orphanCount);
+        orphanCount = orphanMark;
+        if (orphanCount == orphans.length) {
+            int[] newOrphans = new int[orphanCount * 2];
+            System.arraycopy(orphans, 0, newOrphans, 0, orphanCount);
+            orphans = newOrphans;
+        }
+        orphans[orphanCount++] = node;
+        return true;
+    }
+
+    private int idOf(Matcher matcher) {
+        Integer id = matcherIds.get(matcher);
+        if (id == null) {
+            id = matchers.size();
+            matchers.add(matcher);
+            matcherIds.put(matcher, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,268 @@
+package org.parboiled.examples;
+
+import org.parboiled.BaseParser;
+import org.parboiled.Parboiled;
+import org.parboiled.transform.ParserTransformer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+
+/**
+ * An on disk cache of the classes generated for a parser class
+ *
+ * <p>{@code Parboiled.createParser()} first generates, using ASM, a subclass
+ * of the parser class along with one class per action and per action
+ * variable initializer. This is done once per JVM, and is what makes the
+ * first parser creation slow. This class saves the bytecode of these
+ * generated classes to a file, and defines them from that file in later
+ * JVMs, before the first parser is created: {@code Parboiled.createParser()}
+ * then finds the subclass already loaded and skips code generation.</p>
+ *
+ * <p>The rule graph itself is not saved: its matchers and actions refer to
+ * the parser instance they were created for. It is built again by the rule
+ * methods of each new parser instance, which is comparatively cheap.</p>
+ *
+ * <p>The cache is only valid for one version of the grammar and of the
+ * parser transformer, identified by the hash of their bytecode, that of the
+ * parser class and its superclasses included; when either changes, the
+ * classes are generated and saved again.</p>
+ *
+ * <p>The generated classes are captured, and defined, through non public
+ * parts of the parser transformer and of {@code ClassLoader}; if these
+ * cannot be reached, as on JVMs which deny such access, {@link
+ * #prepare(File, Class, Class[])} throws an {@link IllegalStateException}
+ * and {@link #createParser(Class)} falls back to {@code
+ * Parboiled.createParser()} alone.</p>
+ */
+public final class ParserClassCache {
+
+    /**
+     * The system property naming the directory of the cache files used by {@link #createParser(Class)}, one file
+     * per parser class; when it is not set, no cache is used
+     */
+    public static final String DIRECTORY_PROPERTY = "parboiled.classCache";
+
+    private static final int MAGIC = 0x50434302;
+
+    // the parser classes createParser() prepared in this JVM, whose generated classes are loaded; guarded by itself
+    private static final Set<Class<?>> PREPARED_CLASSES = new HashSet<Class<?>>();
+
+    private ParserClassCache() {
+    }
+
+    /**
+     * Create a parser, its generated classes being taken from the cache file of its class in the directory given by
+     * the {@link #DIRECTORY_PROPERTY} system property, or saved to it
+     *
+     * <p>If the property is not set, or if the cache cannot be used, the parser is created by {@code
+     * Parboiled.createParser()} alone; in the latter case, the reason is printed to the standard error. The cache
+     * is only used for the first parser of each class, the generated classes being loaded from then on.</p>
+     *
+     * @param parserClass the parser class
+     * @param <P> the type of the parser
+     * @param <V> the type of the values of the parser
+     * @return a new parser
+     */
+    public static <P extends BaseParser<V>, V> P createParser(Class<P> parserClass) {
+        checkArgNotNull(parserClass, "parserClass");
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory != null) {
+            synchronized (PREPARED_CLASSES) {
+                // defining the classes a second time would fail
+                if (PREPARED_CLASSES.add(parserClass)) {
+                    File file = new File(directory, parserClass.getName() + ".classes");
+                    try {
+                        prepare(file, parserClass);
+                    } catch (IOException e) {
+                        System.err.printf("Parser class cache '%s' not used: %s\n", file, e);
+                    } catch (IllegalStateException e) {
+                        System.err.printf("Parser class cache '%s' not used: %s\n", file, e);
+                    }
+                }
+            }
+        }
+        return Parboiled.createParser(parserClass);
+    }
+
+    /**
+     * Make the generated classes of a parser class available, either from the cache file or by generating them
+     *
+     * <p>This must be called before any parser of this class is created, and only once per JVM. If it throws,
+     * classes may have been defined already, but {@code Parboiled.createParser()} still works, generating those which
+     * are missing.</p>
+     *
+     * @param file the cache file
+     * @param parserClass the parser class
+     * @param grammarClasses other classes defining the grammar, besides the parser class and its superclasses
+     * @return true if the classes were loaded from the cache, false if they were generated (and saved)
+     * @throws IOException the cache file cannot be read or written
+     * @throws IllegalStateException the classes cannot be captured or defined through reflection
+     */
+    public static boolean prepare(File file, Class<?> parserClass, Class<?>... grammarClasses) throws IOException {
+        checkArgNotNull(file, "file");
+        checkArgNotNull(parserClass, "parserClass");
+        List<Class<?>> versionedClasses = new ArrayList<Class<?>>(Arrays.asList(grammarClasses));
+        for (Class<?> c = parserClass; c != null && c != BaseParser.class; c = c.getSuperclass()) {
+            versionedClasses.add(c);
+        }
+        versionedClasses.add(ParserTransformer.class);
+        String version = versionOf(versionedClasses);
+
+        Map<String, byte[]> classes = read(file, version);
+        if (classes != null) {
+            define(parserClass.getClassLoader(), classes);
+            return true;
+        }
+        write(file, version, generate(parserClass));
+        return false;
+    }
+
+    // the hash of the bytecode of the given classes
+    private static String versionOf(List<Class<?>> classes) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is always supported", e);
+        }
+        byte[] buffer = new byte[8192];
+        for (Class<?> c : classes) {
+            String resource = c.getName().replace('.', '/') + ".class";
+            InputStream in = c.getClassLoader().getResourceAsStream(resource);
+            if (in == null) throw new IOException("cannot find bytecode of " + c.getName());
+            try {
+                int count;
+                while ((count = in.read(buffer)) >= 0) digest.update(buffer, 0, count);
+            } finally {
+                in.close();
+            }
+        }
+        StringBuilder version = new StringBuilder();
+        for (byte b : digest.digest()) version.append(String.format("%02x", b & 0xff));
+        return version.toString();
+    }
+
+    private static Map<String, byte[]> read(File file, String version) throws IOException {
+        if (!file.exists()) return null;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || !version.equals(in.readUTF())) return null;
+            int count = in.readInt();
+            Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte[] code = new byte[in.readInt()];
+                in.readFully(code);
+                classes.put(name, code);
+            }
+            return classes;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void write(File file, String version, Map<String, byte[]> classes) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeUTF(version);
+            out.writeInt(classes.size());
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+            throw new IOException("cannot replace parser class cache file " + file);
+        }
+    }
+
+    /*
+     * Runs the parser transformer, which defines the generated classes in the class loader of the parser class, and
+     * collects their bytecode: that of action classes from the instruction groups of each rule method, and that of
+     * the parser subclass from the class node. The parser subclass comes last.
+     */
+    private static Map<String, byte[]> generate(Class<?> parserClass) {
+        Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+        try {
+            Method extendParserClass = ParserTransformer.class.getDeclaredMethod("extendParserClass", Class.class);
+            extendParserClass.setAccessible(true);
+            Object classNode = extendParserClass.invoke(null, parserClass);
+            for (Object ruleMethod : (Collection<?>) call(call(classNode, "getRuleMethods"), "values")) {
+                for (Object group : (List<?>) call(ruleMethod, "getGroups")) {
+                    byte[] code = (byte[]) call(group, "getGroupClassCode");
+                    // null for classes which were already loaded
+                    if (code == null) continue;
+                    classes.put((String) call(call(group, "getGroupClassType"), "getClassName"), code);
+                }
+            }
+            classes.put(((Class<?>) call(classNode, "getExtendedClass")).getName(),
+                (byte[]) call(classNode, "getClassCode"));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("unsupported parser transformer", e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("unsupported parser transformer", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("cannot generate the classes of " + parserClass.getName(), e.getCause());
+        } catch (RuntimeException e) {
+            // such as the InaccessibleObjectException of setAccessible() on newer JVMs
+            throw new IllegalStateException("unsupported parser transformer", e);
+        }
+        return classes;
+    }
+
+    // finds public methods of non public classes as well
+    private static Object call(Object target, String methodName)
+        throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        Method method = target.getClass().getMethod(methodName);
+        method.setAccessible(true);
+        return method.invoke(target);
+    }
+
+    // the same as what the parser transformer does to load the classes it generates
+    private static void define(ClassLoader classLoader, Map<String, byte[]> classes) {
+        try {
+            Method defineClass = ClassLoader.class.getDeclaredMethod("defineClass", String.class, byte[].class,
+                int.class, int.class);
+            defineClass.setAccessible(true);
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                byte[] code = entry.getValue();
+                defineClass.invoke(classLoader, entry.getKey(), code, 0, code.length);
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("cannot define classes", e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("cannot define classes", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("cannot define classes", e.getCause());
+        } catch (RuntimeException e) {
+            // such as the InaccessibleObjectException of setAccessible() on newer JVMs
+            throw new IllegalStateException("cannot define classes", e);
+        }
+    }
+}
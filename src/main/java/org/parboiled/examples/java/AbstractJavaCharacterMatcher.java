@@ -19,15 +19,35 @@ package org.parboiled.examples.java;
 import org.parboiled.MatcherContext;
 import org.parboiled.matchers.CustomMatcher;
 
+/**
+ * Base class for matchers of a single Java character, as defined by a
+ * predicate on Unicode code points
+ *
+ * <p>The predicate is computed once for the Latin-1 range, which covers most
+ * characters of typical sources, and stored in a bitset; it is only evaluated
+ * for characters above this range. A surrogate pair is matched as a whole if
+ * its supplementary code point is accepted; lone surrogates never are.</p>
+ */
 public abstract class AbstractJavaCharacterMatcher extends CustomMatcher {
 
+    private static final int LATIN_1_SIZE = 256;
+
+    private final long[] latin1 = new long[LATIN_1_SIZE / 64];
+
+    /*
+     * The predicate is evaluated from this constructor: subclasses must not make it depend on their own fields.
+     */
     protected AbstractJavaCharacterMatcher(String label) {
         super(label);
+        for (int c = 0; c < LATIN_1_SIZE; c++) {
+            if (acceptCodePoint(c)) latin1[c >>> 6] |= 1L << c;
+        }
     }
 
+    // this matches a surrogate pair at once
     @Override
     public final boolean isSingleCharMatcher() {
-        return true;
+        return false;
     }
 
     @Override
@@ -37,7 +57,9 @@ public abstract class AbstractJavaCharacterMatcher extends CustomMatcher {
 
     @Override
     public boolean isStarterChar(char c) {
-        return acceptChar(c);
+        if (c < LATIN_1_SIZE) return (latin1[c >>> 6] & 1L << c) != 0;
+        // whether it matches depends on the low surrogate
+        return Character.isHighSurrogate(c) || acceptCodePoint(c);
     }
 
     @Override
@@ -46,13 +68,21 @@ public abstract class AbstractJavaCharacterMatcher extends CustomMatcher {
     }
 
     public final <V> boolean match(MatcherContext<V> context) {
-        if (!acceptChar(context.getCurrentChar())) {
+        char c = context.getCurrentChar();
+        int length = 1;
+        if (c < LATIN_1_SIZE) {
+            if ((latin1[c >>> 6] & 1L << c) == 0) return false;
+        } else if (Character.isHighSurrogate(c)) {
+            char low = context.getInputBuffer().charAt(context.getCurrentIndex() + 1);
+            if (!Character.isLowSurrogate(low) || !acceptCodePoint(Character.toCodePoint(c, low))) return false;
+            length = 2;
+        } else if (!acceptCodePoint(c)) {
             return false;
         }
-        context.advanceIndex(1);
+        context.advanceIndex(length);
         context.createNode();
         return true;
     }
 
-    protected abstract boolean acceptChar(char c);
+    protected abstract boolean acceptCodePoint(int codePoint);
 }
@@ -0,0 +1,45 @@
+package org.parboiled.examples.java;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the memory allocated by the current thread
+ *
+ * <p>This relies on the {@code com.sun.management} extension of the thread
+ * MXBean; when it is not available, or when the JVM does not support it,
+ * {@link #isSupported()} returns false and no allocation is ever reported.
+ * </p>
+ */
+final class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = threadBean();
+
+    private AllocationMeter() {
+    }
+
+    static boolean isSupported() {
+        return THREAD_BEAN != null;
+    }
+
+    /**
+     * @return the number of bytes allocated so far by the current thread, or 0 if not supported
+     */
+    static long allocatedBytes() {
+        return THREAD_BEAN == null ? 0L : THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            Object bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+            com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+            if (!threadBean.isThreadAllocatedMemorySupported()) return null;
+            if (!threadBean.isThreadAllocatedMemoryEnabled()) threadBean.setThreadAllocatedMemoryEnabled(true);
+            return threadBean;
+        } catch (LinkageError e) {
+            return null; // not a HotSpot compatible JVM
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.Rule;
+import org.parboiled.examples.CompactTreeParseRunner;
+import org.parboiled.matchers.CustomMatcher;
+import org.parboiled.matchers.Matcher;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+
+/**
+ * Matcher for Java binary expressions, by precedence climbing
+ *
+ * <p>In {@link JavaParser}, binary operators are parsed by a cascade of
+ * rules, one per precedence level, from {@code conditionalOrExpression()}
+ * down to {@code multiplicativeExpression()}, so that each operand goes
+ * through all of them before reaching {@code unaryExpression()}. This matcher
+ * matches the same input from a table of the operators of each level: it
+ * matches an operand, then the operators following it, each with its right
+ * operand, and recurses only when an operator of a higher level follows a
+ * right operand.</p>
+ *
+ * <p>The operators of the grammar are such that at most one of them matches
+ * at any index, so that each operator is tried at most once after each
+ * operand, while the cascade tries the operators of a level once for each
+ * of the levels below it. As with the cascade, an operator without a right
+ * operand is not part of the match, which then ends before it.</p>
+ *
+ * <p>When a parse tree is built, this matcher runs the cascade instead, so
+ * that the tree is that of the cascade; the rule of this matcher is meant to
+ * have its node skipped. Parse runners which build a tree of their own while
+ * nodes are suppressed, as {@link CompactTreeParseRunner}, call {@link
+ * #matchWithNodes(MatcherContext)} for the same tree.</p>
+ */
+public class BinaryExpressionMatcher extends CustomMatcher
+    implements CompactTreeParseRunner.NodeSensitiveMatcher {
+
+    private final Matcher cascade;
+    private final Matcher operand;
+    // all operators, by level
+    private final Matcher[] operators;
+    // for each operator, the rule of its right operand
+    private final Matcher[] rightOperands;
+    private final int[] levels;
+    // the index in operators of the first operator of each level, then the operator count
+    private final int[] levelStarts;
+    private final int maxLevel;
+
+    /**
+     * @param cascade the rule matching the same input by descending one level at a time, run instead of this matcher
+     * when the parse tree is built
+     * @param operand the rule of the operands
+     * @param operators the operators of each level, by increasing precedence
+     * @param typeComparison the operator whose right operand is a type rather than an operand, if any, as {@code
+     * instanceof}; it must be one of the operators
+     * @param type the rule of the right operand of {@code typeComparison}
+     */
+    public BinaryExpressionMatcher(Rule cascade, Rule operand, Rule[][] operators, Rule typeComparison, Rule type) {
+        super("binaryExpression");
+        checkArgNotNull(cascade, "cascade");
+        checkArgNotNull(operand, "operand");
+        checkArgNotNull(operators, "operators");
+        this.cascade = (Matcher) cascade;
+        this.operand = (Matcher) operand;
+
+        int count = 0;
+        for (Rule[] level : operators) count += level.length;
+        this.operators = new Matcher[count];
+        rightOperands = new Matcher[count];
+        levels = new int[count];
+        levelStarts = new int[operators.length + 1];
+        int i = 0;
+        for (int level = 0; level < operators.length; level++) {
+            levelStarts[level] = i;
+            for (Rule operator : operators[level]) {
+                this.operators[i] = (Matcher) operator;
+                rightOperands[i] = (Matcher) (operator == typeComparison ? type : operand);
+                levels[i] = level;
+                i++;
+            }
+        }
+        levelStarts[operators.length] = count;
+        maxLevel = operators.length - 1;
+    }
+
+    @Override
+    public final boolean isSingleCharMatcher() {
+        return false;
+    }
+
+    @Override
+    public final boolean canMatchEmpty() {
+        return false;
+    }
+
+    // operands start with too many different characters to tell them apart here
+    @Override
+    public boolean isStarterChar(char c) {
+        return true;
+    }
+
+    @Override
+    public final char getStarterChar() {
+        return '0';
+    }
+
+    public final <V> boolean match(MatcherContext<V> context) {
+        if (!context.isNodeSuppressed()) return matchWithNodes(context);
+        if (!operand.getSubContext(context).runMatcher()) return false;
+        climb(context, 0);
+        context.createNode();
+        return true;
+    }
+
+    /**
+     * Matches through the cascade, whether nodes are suppressed or not
+     */
+    public final <V> boolean matchWithNodes(MatcherContext<V> context) {
+        if (!cascade.getSubContext(context).runMatcher()) return false;
+        context.createNode();
+        return true;
+    }
+
+    /*
+     * After a left operand, matches the operators from the given level up, each with its right operand, and returns
+     * false if an operator matched without a right operand; the match then ends right before that operator, which is
+     * where the cascade ends too.
+     */
+    private <V> boolean climb(MatcherContext<V> context, int minLevel) {
+        int toLevel = maxLevel;
+        while (true) {
+            int start = context.getCurrentIndex();
+            int operator = matchOperator(context, minLevel, toLevel);
+            if (operator < 0) return true;
+            if (!rightOperands[operator].getSubContext(context).runMatcher()) {
+                context.setCurrentIndex(start);
+                return false;
+            }
+            int level = levels[operator];
+            // a type is not an operand, no operator of a higher level applies to it
+            if (rightOperands[operator] == operand && level < maxLevel && !climb(context, level + 1)) return false;
+            // operators from a higher level than this one have just been tried at the current index
+            toLevel = level;
+        }
+    }
+
+    // returns the operator matched, or -1 if none of the given levels matches
+    private <V> int matchOperator(MatcherContext<V> context, int fromLevel, int toLevel) {
+        for (int i = levelStarts[fromLevel]; i < levelStarts[toLevel + 1]; i++) {
+            if (operators[i].getSubContext(context).runMatcher()) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,107 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.Parboiled;
+import org.parboiled.examples.ParserClassCache;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cold start time of the Java parser, with and without a {@link ParserClassCache}
+ *
+ * <p>Arguments are {@code [-runs <n>] [<cache file>]}. Each run starts a new
+ * JVM, which creates a parser and builds its {@code compilationUnit()} rule;
+ * the time this takes is measured within the new JVM, and the wall clock time
+ * of the whole JVM run is reported as well. Runs are repeated {@code -runs}
+ * times (5 by default) without a cache, then with the given cache file
+ * ({@code javaparser.classes} by default), which is filled beforehand.</p>
+ */
+public final class ColdStart {
+
+    private static final String PROBE = "-probe";
+
+    private ColdStart() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && PROBE.equals(args[0])) {
+            probe(args.length > 1 ? new File(args[1]) : null);
+            return;
+        }
+
+        int runs = 5;
+        File cacheFile = new File("javaparser.classes");
+        for (int i = 0; i < args.length; i++) {
+            if ("-runs".equals(args[i]) && i + 1 < args.length) {
+                runs = Math.max(Integer.parseInt(args[++i]), 1);
+            } else {
+                cacheFile = new File(args[i]);
+            }
+        }
+
+        System.out.println("parboiled Java parser, cold start test");
+        System.out.println("--------------------------------------");
+        report("Without cache", runs, null);
+        // fill the cache first
+        if (cacheFile.exists() && !cacheFile.delete()) {
+            System.out.printf("Could not delete '%s'\n", cacheFile);
+            System.exit(1);
+        }
+        runProbe(cacheFile);
+        report(String.format("With cache '%s'", cacheFile), runs, cacheFile);
+    }
+
+    private static void report(String title, int runs, File cacheFile) throws IOException, InterruptedException {
+        long[] creationTimes = new long[runs];
+        long[] jvmTimes = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            creationTimes[i] = runProbe(cacheFile);
+            jvmTimes[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(creationTimes);
+        Arrays.sort(jvmTimes);
+        System.out.printf("%s, median of %d runs:\n", title, runs);
+        System.out.printf("    parser creation: %6d ms (min %6d ms)\n", creationTimes[runs / 2] / 1000000,
+            creationTimes[0] / 1000000);
+        System.out.printf("    whole JVM run:   %6d ms (min %6d ms)\n", jvmTimes[runs / 2] / 1000000,
+            jvmTimes[0] / 1000000);
+    }
+
+    // returns the parser creation time reported by the probe, in nanoseconds
+    private static long runProbe(File cacheFile) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ColdStart.class.getName());
+        command.add(PROBE);
+        if (cacheFile != null) command.add(cacheFile.getPath());
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+        List<String> output = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) output.add(line);
+        } finally {
+            reader.close();
+        }
+        if (process.waitFor() != 0 || output.isEmpty()) {
+            throw new IllegalStateException("probe failed:\n" + output);
+        }
+        return Long.parseLong(output.get(output.size() - 1).trim());
+    }
+
+    private static void probe(File cacheFile) throws IOException {
+        long start = System.nanoTime();
+        if (cacheFile != null) ParserClassCache.prepare(cacheFile, JavaParser.class, Main.GRAMMAR_CLASSES);
+        Parboiled.createParser(JavaParser.class).compilationUnit();
+        System.out.println(System.nanoTime() - start);
+    }
+}
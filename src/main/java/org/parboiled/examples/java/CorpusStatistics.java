@@ -0,0 +1,90 @@
+package org.parboiled.examples.java;
+
+import java.io.File;
+
+/**
+ * Parsing statistics over a set of source files
+ *
+ * <p>Instances of this class are not thread safe. When parsing in parallel,
+ * each worker collects its own statistics, which are then merged using
+ * {@link #merge(CorpusStatistics)}.</p>
+ */
+final class CorpusStatistics {
+
+    private int files;
+    private long lines;
+    private long characters;
+    private long allocatedBytes;
+    private long maxAllocatedBytes = -1L;
+    private File maxAllocatingFile;
+    private final LatencyHistogram parseTimes = new LatencyHistogram();
+    private final SlowestFiles slowestFiles;
+
+    /**
+     * @param slowestFileCount the number of slowest files to keep track of
+     */
+    CorpusStatistics(int slowestFileCount) {
+        slowestFiles = new SlowestFiles(slowestFileCount);
+    }
+
+    void addFile(File file, long lines, long characters, long allocatedBytes, long parseNanos) {
+        files++;
+        parseTimes.record(parseNanos);
+        slowestFiles.record(file, characters, parseNanos);
+        this.lines += lines;
+        this.characters += characters;
+        this.allocatedBytes += allocatedBytes;
+        if (allocatedBytes > maxAllocatedBytes) {
+            maxAllocatedBytes = allocatedBytes;
+            maxAllocatingFile = file;
+        }
+    }
+
+    void merge(CorpusStatistics other) {
+        files += other.files;
+        lines += other.lines;
+        characters += other.characters;
+        allocatedBytes += other.allocatedBytes;
+        parseTimes.merge(other.parseTimes);
+        slowestFiles.merge(other.slowestFiles);
+        if (other.maxAllocatedBytes > maxAllocatedBytes) {
+            maxAllocatedBytes = other.maxAllocatedBytes;
+            maxAllocatingFile = other.maxAllocatingFile;
+        }
+    }
+
+    int getFiles() {
+        return files;
+    }
+
+    long getLines() {
+        return lines;
+    }
+
+    long getCharacters() {
+        return characters;
+    }
+
+    long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    long getMaxAllocatedBytes() {
+        return maxAllocatedBytes;
+    }
+
+    /**
+     * @return the file whose parsing allocated the most memory, or null if no file was parsed
+     */
+    File getMaxAllocatingFile() {
+        return maxAllocatingFile;
+    }
+
+    LatencyHistogram getParseTimes() {
+        return parseTimes;
+    }
+
+    SlowestFiles getSlowestFiles() {
+        return slowestFiles;
+    }
+}
@@ -0,0 +1,75 @@
+package org.parboiled.examples.java;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collection counts and times of all garbage collectors of the JVM
+ *
+ * <p>An instance is either a snapshot of the totals since the JVM started
+ * ({@link #now()}) or the difference between two snapshots ({@link
+ * #since(GcActivity)}).</p>
+ */
+final class GcActivity {
+
+    private final List<String> names;
+    private final long[] counts;
+    private final long[] times;
+
+    private GcActivity(List<String> names, long[] counts, long[] times) {
+        this.names = names;
+        this.counts = counts;
+        this.times = times;
+    }
+
+    static GcActivity now() {
+        List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+        List<String> names = new ArrayList<String>(beans.size());
+        long[] counts = new long[beans.size()];
+        long[] times = new long[beans.size()];
+        for (int i = 0; i < beans.size(); i++) {
+            GarbageCollectorMXBean bean = beans.get(i);
+            names.add(bean.getName());
+            // both may be -1 if undefined for this collector
+            counts[i] = Math.max(bean.getCollectionCount(), 0L);
+            times[i] = Math.max(bean.getCollectionTime(), 0L);
+        }
+        return new GcActivity(names, counts, times);
+    }
+
+    /**
+     * @param before an earlier snapshot
+     * @return the activity between the given snapshot and this one
+     */
+    GcActivity since(GcActivity before) {
+        long[] counts = new long[this.counts.length];
+        long[] times = new long[this.times.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = this.counts[i] - before.counts[i];
+            times[i] = this.times[i] - before.times[i];
+        }
+        return new GcActivity(names, counts, times);
+    }
+
+    long getTotalCount() {
+        long total = 0;
+        for (long count : counts) total += count;
+        return total;
+    }
+
+    long getTotalTime() {
+        long total = 0;
+        for (long time : times) total += time;
+        return total;
+    }
+
+    String print() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            sb.append(String.format("    %6d collections, %6d ms: %s\n", counts[i], times[i], names.get(i)));
+        }
+        return sb.toString();
+    }
+}
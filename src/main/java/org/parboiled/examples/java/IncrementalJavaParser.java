@@ -0,0 +1,228 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.Node;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.errors.ParseError;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.parserunners.ReportingParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * Incremental re-parsing of Java compilation units
+ *
+ * <p>After a text edit, only the smallest {@code classBodyDeclaration} or
+ * {@code blockStatement} enclosing the edit is parsed again, and the new
+ * subtree is spliced into the parse tree of the previous version of the text:
+ * nodes before the edit are reused as is, and nodes after it are reused
+ * through views shifting their indices (see {@link SplicedNode}). The cost of
+ * an edit is therefore mostly that of parsing the enclosing declaration or
+ * statement.</p>
+ *
+ * <p>A subtree is only replaced if the edit leaves its first two characters
+ * alone (the grammar looks at most that far ahead past the end of a token),
+ * and if the rule, run from the start of the subtree over the whole rest of
+ * the new text, ends exactly where the edited subtree ends. This relies on
+ * the enclosing rules of the grammar choosing their alternative before
+ * reaching a declaration or a statement. When no subtree qualifies, the whole
+ * text is parsed again.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+public final class IncrementalJavaParser {
+
+    /**
+     * The outcome of a full or incremental parse
+     */
+    public static final class Result {
+        private final String text;
+        private final Node<Object> parseTreeRoot;
+        private final List<ParseError> parseErrors;
+        private final boolean incremental;
+
+        private Result(String text, Node<Object> parseTreeRoot, List<ParseError> parseErrors, boolean incremental) {
+            this.text = text;
+            this.parseTreeRoot = parseTreeRoot;
+            this.parseErrors = parseErrors;
+            this.incremental = incremental;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public boolean isMatched() {
+            return parseTreeRoot != null;
+        }
+
+        /**
+         * @return the root of the parse tree, or null if the text did not match
+         */
+        public Node<Object> getParseTreeRoot() {
+            return parseTreeRoot;
+        }
+
+        public List<ParseError> getParseErrors() {
+            return parseErrors;
+        }
+
+        /**
+         * @return true if only part of the text was parsed again
+         */
+        public boolean isIncremental() {
+            return incremental;
+        }
+    }
+
+    // how far past the end of a token the grammar may look
+    private static final int LOOKAHEAD = 2;
+
+    private final Rule compilationUnit;
+    private final Rule classBodyDeclaration;
+    private final Rule blockStatement;
+
+    public IncrementalJavaParser() {
+        this(Parboiled.createParser(JavaParser.class));
+    }
+
+    public IncrementalJavaParser(JavaParser parser) {
+        checkArgNotNull(parser, "parser");
+        compilationUnit = parser.compilationUnit();
+        classBodyDeclaration = parser.classBodyDeclaration();
+        blockStatement = parser.blockStatement();
+    }
+
+    /**
+     * Parse a whole compilation unit
+     *
+     * @param text the text
+     * @return the result
+     */
+    public Result parse(String text) {
+        checkArgNotNull(text, "text");
+        ParsingResult<Object> result = new ReportingParseRunner<Object>(compilationUnit).run(text);
+        return new Result(text, result.matched ? result.parseTreeRoot : null, result.parseErrors, false);
+    }
+
+    /**
+     * Parse a compilation unit after an edit
+     *
+     * @param previous the result for the text before the edit
+     * @param offset the offset of the edit
+     * @param removedLength the number of characters removed at the offset
+     * @param insertedText the text inserted at the offset
+     * @return the result for the edited text
+     */
+    public Result reparse(Result previous, int offset, int removedLength, String insertedText) {
+        checkArgNotNull(previous, "previous");
+        checkArgNotNull(insertedText, "insertedText");
+        String oldText = previous.getText();
+        checkArgument(0 <= offset && 0 <= removedLength && offset + removedLength <= oldText.length(),
+            "edit out of the text bounds");
+        int delta = insertedText.length() - removedLength;
+        // a single copy of the text, instead of one per substring and concatenation
+        String text = new StringBuilder(oldText.length() + delta).append(oldText, 0, offset).append(insertedText)
+            .append(oldText, offset + removedLength, oldText.length()).toString();
+        if (previous.isMatched()) {
+            Node<Object> root = reparseSubtree(previous.getParseTreeRoot(), text, offset, removedLength, delta);
+            if (root != null) return new Result(text, root, Collections.<ParseError>emptyList(), true);
+        }
+        return parse(text);
+    }
+
+    // returns the new root, or null if no subtree could be parsed again
+    private Node<Object> reparseSubtree(Node<Object> root, String text, int offset, int removedLength, int delta) {
+        // the path from the root to the deepest node enclosing the edit, and the index of each node in its parent
+        List<Node<Object>> path = new ArrayList<Node<Object>>();
+        List<Integer> childIndices = new ArrayList<Integer>();
+        path.add(root);
+        while (true) {
+            List<Node<Object>> children = path.get(path.size() - 1).getChildren();
+            int index = lastChildStartingAtOrBefore(children, offset);
+            if (index < 0 || children.get(index).getEndIndex() < offset + removedLength) break;
+            path.add(children.get(index));
+            childIndices.add(index);
+        }
+
+        for (int depth = path.size() - 1; depth > 0; depth--) {
+            Node<Object> node = path.get(depth);
+            Rule rule = ruleOf(node);
+            if (rule == null) continue;
+            int start = node.getStartIndex();
+            if (offset < start + LOOKAHEAD || text.charAt(start) == '\\') continue; // may be a unicode escape
+            Node<Object> replacement = parseAt(rule, text, start, node.getEndIndex() + delta);
+            if (replacement != null) return splice(path, childIndices, depth, replacement, delta);
+        }
+        return null;
+    }
+
+    private Rule ruleOf(Node<Object> node) {
+        String label = node.getLabel();
+        if ("classBodyDeclaration".equals(label)) return classBodyDeclaration;
+        if ("blockStatement".equals(label)) return blockStatement;
+        return null;
+    }
+
+    // children are ordered by index and do not overlap
+    private static int lastChildStartingAtOrBefore(List<Node<Object>> children, int offset) {
+        int low = 0;
+        int high = children.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (children.get(middle).getStartIndex() <= offset) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    // returns the new subtree, with indices relative to start, or null if it does not end at the expected index
+    private static Node<Object> parseAt(Rule rule, String text, int start, int expectedEnd) {
+        ParsingResult<Object> result = new BasicParseRunner<Object>(rule).run(new OffsetInputBuffer(text, start));
+        if (!result.matched || result.parseTreeRoot == null) return null;
+        return result.parseTreeRoot.getEndIndex() == expectedEnd - start ? result.parseTreeRoot : null;
+    }
+
+    /*
+     * Copies the nodes of the path above the replaced node, with the replacement in place of the node at the given
+     * depth. In these copies, children before the path are reused as is and children after it are shifted by delta.
+     */
+    private static Node<Object> splice(List<Node<Object>> path, List<Integer> childIndices, int depth,
+                                       Node<Object> replacement, int delta) {
+        List<SplicedNode<Object>> copies = new ArrayList<SplicedNode<Object>>(depth);
+        Node<Object> parent = null;
+        for (int i = 0; i < depth; i++) {
+            SplicedNode<Object> copy = SplicedNode.withChildren(path.get(i), delta, parent,
+                new ArrayList<Node<Object>>());
+            copies.add(copy);
+            parent = copy;
+        }
+        Node<Object> spliced = SplicedNode.shift(replacement, path.get(depth).getStartIndex(), parent);
+
+        for (int i = 0; i < depth; i++) {
+            SplicedNode<Object> copy = copies.get(i);
+            List<Node<Object>> originalChildren = path.get(i).getChildren();
+            List<Node<Object>> children = copy.getChildren();
+            int pathIndex = childIndices.get(i);
+            for (int j = 0; j < pathIndex; j++) {
+                children.add(SplicedNode.shift(originalChildren.get(j), 0, copy));
+            }
+            children.add(i + 1 < depth ? copies.get(i + 1) : spliced);
+            for (int j = pathIndex + 1; j < originalChildren.size(); j++) {
+                children.add(SplicedNode.shift(originalChildren.get(j), delta, copy));
+            }
+        }
+        return copies.get(0);
+    }
+}
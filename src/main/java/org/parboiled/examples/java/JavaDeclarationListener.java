@@ -0,0 +1,55 @@
+package org.parboiled.examples.java;
+
+/**
+ * The declarations of a Java compilation unit, as reported by a {@link
+ * JavaDeclarationParser} while it parses
+ *
+ * <p>Events come in source order. Members of a type are reported between the
+ * {@link #onTypeStart} and {@link #onTypeEnd} of that type, nested types
+ * included. Source ranges are input indices; a range starts with the first
+ * modifier or annotation of the declaration and ends after its last token,
+ * the spacing following it included.</p>
+ *
+ * <p>Declarations within method bodies, initializers and anonymous classes
+ * are not reported. On input which does not parse, the events up to the
+ * error are reported, so that a type may lack its {@link #onTypeEnd}.</p>
+ */
+public interface JavaDeclarationListener {
+
+    enum TypeKind {
+        CLASS, INTERFACE, ENUM, ANNOTATION
+    }
+
+    /**
+     * @param name the qualified name of the package
+     */
+    void onPackage(String name, int start, int end);
+
+    /**
+     * @param name the imported name, ending with {@code .*} for an import on demand
+     * @param isStatic whether the import is a static one
+     */
+    void onImport(String name, boolean isStatic, int start, int end);
+
+    /**
+     * @param name the simple name of the type
+     */
+    void onTypeStart(TypeKind kind, String name, int start);
+
+    void onTypeEnd(int end);
+
+    /**
+     * Reports a method, a constructor or an element of an annotation type
+     *
+     * @param name the name of the method, which is that of its type for a constructor
+     * @param isConstructor whether this is a constructor
+     */
+    void onMethod(String name, boolean isConstructor, int start, int end);
+
+    /**
+     * Reports a field, a constant of an interface or annotation type, or an
+     * enum constant; each variable of a declaration gets its own event, with
+     * the range of the whole declaration
+     */
+    void onField(String name, int start, int end);
+}
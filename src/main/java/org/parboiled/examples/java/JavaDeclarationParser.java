@@ -0,0 +1,331 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
+
+/**
+ * The Java grammar, reporting the declarations it matches to a {@link
+ * JavaDeclarationListener}
+ *
+ * <p>Events are emitted by actions of the grammar as soon as a declaration
+ * has matched, so that running {@code compilationUnit().suppressNode()}
+ * yields the outline of a file without building any parse tree: names are
+ * the only objects created, besides what the listener does with them.
+ * Declarations are recorded as input indices until they are complete.</p>
+ *
+ * <p>Within a method body, a local or anonymous class may be matched by an
+ * alternative which fails later on, and should not be reported anyway. As
+ * {@link JavaParser} uses the same rules for these classes as for the others,
+ * the types and members reachable from {@link #compilationUnit()} without
+ * going through a block or an expression get rules of their own here, named
+ * after those of {@link JavaParser}; only these rules report anything.</p>
+ *
+ * <p>A listener must be set before parsing; like the parser itself, it
+ * cannot be shared between threads.</p>
+ */
+public class JavaDeclarationParser extends JavaParser {
+
+    private JavaDeclarationListener listener;
+    // the start of the declaration being matched
+    private int declarationStart;
+    private boolean staticImport;
+    // the ranges of the names declared by the declaration being matched
+    private int[] nameStarts = new int[8];
+    private int[] nameEnds = new int[8];
+    private int nameCount;
+
+    public void setListener(JavaDeclarationListener listener) {
+        this.listener = listener;
+    }
+
+    //-------------------------------------------------------------------------
+    //  Compilation Unit
+    //-------------------------------------------------------------------------
+
+    @Override
+    Rule packageDeclaration() {
+        return sequence(startDeclaration(), zeroOrMore(annotation()),
+            sequence(PACKAGE, qualifiedIdentifier(), firstName(), SEMI), packageDeclared());
+    }
+
+    @Override
+    Rule importDeclaration() {
+        return sequence(startDeclaration(), IMPORT, optional(STATIC), importStarted(), qualifiedIdentifier(),
+            optional(DOT, STAR), SEMI, importDeclared());
+    }
+
+    @Override
+    Rule typeDeclaration() {
+        return firstOf(sequence(startDeclaration(), zeroOrMore(modifier()),
+                firstOf(reportedClassDeclaration(), reportedEnumDeclaration(),
+                    reportedInterfaceDeclaration(), reportedAnnotationTypeDeclaration())
+            ), SEMI
+        );
+    }
+
+    //-------------------------------------------------------------------------
+    //  Class Declaration
+    //-------------------------------------------------------------------------
+
+    Rule reportedClassDeclaration() {
+        return sequence(
+                CLASS,
+                identifier(), firstName(),
+                optional(TypeParameters()),
+                optional(EXTENDS, classType()),
+                optional(IMPLEMENTS, classTypeList()),
+                typeStarted(JavaDeclarationListener.TypeKind.CLASS),
+                reportedClassBody(),
+                typeEnded()
+        );
+    }
+
+    Rule reportedClassBody() {
+        return sequence(LWING, zeroOrMore(reportedClassBodyDeclaration()), RWING);
+    }
+
+    Rule reportedClassBodyDeclaration() {
+        return firstOf(SEMI, sequence(optional(STATIC), block()),
+            sequence(startDeclaration(), zeroOrMore(modifier()), reportedMemberDecl()));
+    }
+
+    Rule reportedMemberDecl() {
+        return firstOf(
+            sequence(TypeParameters(), reportedGenericMethodOrConstructorRest()),
+            sequence(type(), identifier(), firstName(), methodDeclaratorRest(), methodDeclared(false)),
+            sequence(type(), clearNames(), reportedVariableDeclarators(), SEMI, fieldsDeclared()),
+            sequence(VOID, identifier(), firstName(), voidMethodDeclaratorRest(), methodDeclared(false)),
+            sequence(identifier(), firstName(), constructorDeclaratorRest(), methodDeclared(true)),
+            reportedInterfaceDeclaration(), reportedClassDeclaration(), reportedEnumDeclaration(),
+            reportedAnnotationTypeDeclaration());
+    }
+
+    Rule reportedGenericMethodOrConstructorRest() {
+        return firstOf(sequence(firstOf(type(), VOID), identifier(), firstName(),
+            methodDeclaratorRest(), methodDeclared(false)),
+            sequence(identifier(), firstName(), constructorDeclaratorRest(), methodDeclared(true)));
+    }
+
+    //-------------------------------------------------------------------------
+    //  Interface Declaration
+    //-------------------------------------------------------------------------
+
+    Rule reportedInterfaceDeclaration() {
+        return sequence(INTERFACE, identifier(), firstName(), optional(TypeParameters()),
+            optional(EXTENDS, classTypeList()), typeStarted(JavaDeclarationListener.TypeKind.INTERFACE),
+            reportedInterfaceBody(), typeEnded());
+    }
+
+    Rule reportedInterfaceBody() {
+        return sequence(LWING, zeroOrMore(reportedInterfaceBodyDeclaration()), RWING);
+    }
+
+    Rule reportedInterfaceBodyDeclaration() {
+        return firstOf(sequence(startDeclaration(), zeroOrMore(modifier()), reportedInterfaceMemberDecl()),
+            SEMI);
+    }
+
+    Rule reportedInterfaceMemberDecl() {
+        return firstOf(reportedInterfaceMethodOrFieldDecl(),
+            reportedInterfaceGenericMethodDecl(),
+            sequence(VOID, identifier(), firstName(), voidInterfaceMethodDeclaratorsRest(), methodDeclared(false)),
+            reportedInterfaceDeclaration(), reportedAnnotationTypeDeclaration(),
+            reportedClassDeclaration(), reportedEnumDeclaration());
+    }
+
+    Rule reportedInterfaceMethodOrFieldDecl() {
+        return sequence(sequence(type(), identifier(), firstName()),
+            reportedInterfaceMethodOrFieldRest());
+    }
+
+    Rule reportedInterfaceMethodOrFieldRest() {
+        return firstOf(sequence(reportedConstantDeclaratorsRest(), SEMI, fieldsDeclared()),
+            sequence(interfaceMethodDeclaratorRest(), methodDeclared(false)));
+    }
+
+    Rule reportedInterfaceGenericMethodDecl() {
+        return sequence(TypeParameters(), firstOf(type(), VOID), identifier(), firstName(),
+            interfaceMethodDeclaratorRest(), methodDeclared(false));
+    }
+
+    Rule reportedConstantDeclaratorsRest() {
+        return sequence(constantDeclaratorRest(),
+            zeroOrMore(COMMA, reportedConstantDeclarator()));
+    }
+
+    Rule reportedConstantDeclarator() {
+        return sequence(identifier(), addName(), constantDeclaratorRest());
+    }
+
+    //-------------------------------------------------------------------------
+    //  Enum Declaration
+    //-------------------------------------------------------------------------
+
+    Rule reportedEnumDeclaration() {
+        return sequence(ENUM, identifier(), firstName(),
+            optional(IMPLEMENTS, classTypeList()), typeStarted(JavaDeclarationListener.TypeKind.ENUM),
+            reportedEnumBody(), typeEnded());
+    }
+
+    Rule reportedEnumBody() {
+        return sequence(LWING, optional(reportedEnumConstants()), optional(COMMA),
+            optional(reportedEnumBodyDeclarations()), RWING);
+    }
+
+    Rule reportedEnumConstants() {
+        return sequence(reportedEnumConstant(), zeroOrMore(COMMA, reportedEnumConstant()));
+    }
+
+    Rule reportedEnumConstant() {
+        return sequence(startDeclaration(), zeroOrMore(annotation()), identifier(), firstName(),
+            optional(arguments()), optional(classBody()), fieldsDeclared());
+    }
+
+    Rule reportedEnumBodyDeclarations() {
+        return sequence(SEMI, zeroOrMore(reportedClassBodyDeclaration()));
+    }
+
+    //-------------------------------------------------------------------------
+    //  Variable Declarations
+    //-------------------------------------------------------------------------
+
+    Rule reportedVariableDeclarators() {
+        return sequence(reportedVariableDeclarator(),
+            zeroOrMore(COMMA, reportedVariableDeclarator()));
+    }
+
+    Rule reportedVariableDeclarator() {
+        return sequence(identifier(), addName(), zeroOrMore(dim()),
+            optional(EQU, variableInitializer()));
+    }
+
+    //-------------------------------------------------------------------------
+    //  Annotation Type Declaration
+    //-------------------------------------------------------------------------
+
+    Rule reportedAnnotationTypeDeclaration() {
+        return sequence(AT, INTERFACE, identifier(), firstName(),
+            typeStarted(JavaDeclarationListener.TypeKind.ANNOTATION),
+            reportedAnnotationTypeBody(), typeEnded());
+    }
+
+    Rule reportedAnnotationTypeBody() {
+        return sequence(LWING, zeroOrMore(reportedAnnotationTypeElementDeclaration()),
+            RWING);
+    }
+
+    Rule reportedAnnotationTypeElementDeclaration() {
+        return firstOf(
+            sequence(startDeclaration(), zeroOrMore(modifier()), reportedAnnotationTypeElementRest()), SEMI);
+    }
+
+    // the alternatives of annotationMethodOrConstantRest() are split, so that each reports its own kind of member
+    Rule reportedAnnotationTypeElementRest() {
+        return firstOf(
+            sequence(type(), identifier(), firstName(), LPAR, RPAR, optional(defaultValue()), SEMI,
+                methodDeclared(false)),
+            sequence(type(), clearNames(), reportedVariableDeclarators(), SEMI, fieldsDeclared()),
+            reportedClassDeclaration(), reportedEnumDeclaration(), reportedInterfaceDeclaration(),
+            reportedAnnotationTypeDeclaration());
+    }
+
+    //-------------------------------------------------------------------------
+    //  Actions
+    //-------------------------------------------------------------------------
+
+    boolean startDeclaration() {
+        declarationStart = currentIndex();
+        return true;
+    }
+
+    boolean clearNames() {
+        nameCount = 0;
+        return true;
+    }
+
+    // records the name matched by the rule just before
+    boolean addName() {
+        if (nameCount == nameStarts.length) {
+            int[] newNameStarts = new int[nameCount * 2];
+            int[] newNameEnds = new int[nameCount * 2];
+            System.arraycopy(nameStarts, 0, newNameStarts, 0, nameCount);
+            System.arraycopy(nameEnds, 0, newNameEnds, 0, nameCount);
+            nameStarts = newNameStarts;
+            nameEnds = newNameEnds;
+        }
+        nameStarts[nameCount] = matchStart();
+        nameEnds[nameCount++] = matchEnd();
+        return true;
+    }
+
+    boolean firstName() {
+        nameCount = 0;
+        return addName();
+    }
+
+    boolean packageDeclared() {
+        listener.onPackage(name(0), declarationStart, currentIndex());
+        return true;
+    }
+
+    // the imported name starts here, right after the optional 'static'
+    boolean importStarted() {
+        staticImport = matchLength() > 0;
+        nameStarts[0] = currentIndex();
+        return true;
+    }
+
+    // the imported name ends where the ';' just matched starts
+    boolean importDeclared() {
+        listener.onImport(text(nameStarts[0], matchStart()), staticImport, declarationStart, currentIndex());
+        return true;
+    }
+
+    boolean typeStarted(JavaDeclarationListener.TypeKind kind) {
+        listener.onTypeStart(kind, name(0), declarationStart);
+        return true;
+    }
+
+    boolean typeEnded() {
+        listener.onTypeEnd(currentIndex());
+        return true;
+    }
+
+    boolean methodDeclared(boolean isConstructor) {
+        listener.onMethod(name(0), isConstructor, declarationStart, currentIndex());
+        return true;
+    }
+
+    boolean fieldsDeclared() {
+        for (int i = 0; i < nameCount; i++) {
+            listener.onField(name(i), declarationStart, currentIndex());
+        }
+        return true;
+    }
+
+    private String name(int i) {
+        return text(nameStarts[i], nameEnds[i]);
+    }
+
+    // the input text of a name, without the spacing within and after it
+    private String text(int start, int end) {
+        InputBuffer input = getContext().getInputBuffer();
+        int nameEnd = start;
+        while (nameEnd < end && JavaSpacingMatcher.spacingEnd(input, nameEnd) == nameEnd) nameEnd++;
+        if (nameEnd == end || JavaSpacingMatcher.spacingEnd(input, nameEnd) >= end) {
+            return input.extract(start, nameEnd);
+        }
+        // a qualified name with spacing around its dots
+        StringBuilder text = new StringBuilder(end - start);
+        int i = start;
+        while (i < end) {
+            int spacingEnd = JavaSpacingMatcher.spacingEnd(input, i);
+            if (spacingEnd > i) {
+                i = spacingEnd;
+            } else {
+                text.append(input.charAt(i++));
+            }
+        }
+        return text.toString();
+    }
+}
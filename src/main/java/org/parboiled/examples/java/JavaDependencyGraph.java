@@ -0,0 +1,214 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.examples.ParserClassCache;
+import org.parboiled.parserunners.BasicParseRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Package dependency graph of all Java sources of a directory, from their
+ * package and import declarations only
+ *
+ * <p>Arguments are {@code [-threads <n>] [-output <file>] [<directory>]};
+ * the directory defaults to the current directory. Files are scanned in
+ * parallel by {@code -threads} threads (one per available processor by
+ * default), each with its own {@link JavaDeclarationParser} running {@link
+ * JavaParser#compilationUnitHeader()}, so that parsing stops at the first
+ * type declaration of each file. Files whose header does not parse are
+ * listed at the end; the imports before the error still count.</p>
+ *
+ * <p>The graph is written to the {@code -output} file ({@code
+ * dependencies.txt} by default) as an adjacency list: one line per package,
+ * sorted, giving the package then the packages it imports from, separated by
+ * spaces; the default package is written as {@code <default>}. See {@link
+ * #packageOf(String, boolean)} for how imports are mapped to packages.</p>
+ */
+public final class JavaDependencyGraph {
+
+    private static final String DEFAULT_PACKAGE = "<default>";
+
+    private JavaDependencyGraph() {
+    }
+
+    // collects the package and the imported packages of a file
+    private static final class HeaderListener implements JavaDeclarationListener {
+        String packageName;
+        final Set<String> importedPackages = new TreeSet<String>();
+
+        void reset() {
+            packageName = DEFAULT_PACKAGE;
+            importedPackages.clear();
+        }
+
+        public void onPackage(String name, int start, int end) {
+            packageName = name;
+        }
+
+        public void onImport(String name, boolean isStatic, int start, int end) {
+            String importedPackage = packageOf(name, isStatic);
+            importedPackages.add(importedPackage.length() == 0 ? DEFAULT_PACKAGE : importedPackage);
+        }
+
+        public void onTypeStart(TypeKind kind, String name, int start) {
+        }
+
+        public void onTypeEnd(int end) {
+        }
+
+        public void onMethod(String name, boolean isConstructor, int start, int end) {
+        }
+
+        public void onField(String name, int start, int end) {
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = 0;
+        File outputFile = new File("dependencies.txt");
+        File baseDir = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("-threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("-output".equals(args[i]) && i + 1 < args.length) {
+                outputFile = new File(args[++i]);
+            } else {
+                baseDir = new File(args[i]);
+            }
+        }
+        if (threads < 1) threads = Runtime.getRuntime().availableProcessors();
+        if (baseDir == null || !baseDir.exists()) baseDir = new File(".");
+
+        long start = System.currentTimeMillis();
+        List<File> sources = Main.recursiveGetAllJavaSources(baseDir, new ArrayList<File>());
+        List<File> failures = Collections.synchronizedList(new ArrayList<File>());
+        Map<String, Set<String>> graph = scan(sources, threads, failures);
+        long scanTime = System.currentTimeMillis() - start;
+
+        int edges = 0;
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outputFile), "UTF-8"));
+        try {
+            for (Map.Entry<String, Set<String>> entry : graph.entrySet()) {
+                writer.print(entry.getKey());
+                for (String importedPackage : entry.getValue()) {
+                    writer.print(' ');
+                    writer.print(importedPackage);
+                    edges++;
+                }
+                writer.println();
+            }
+        } finally {
+            writer.close();
+        }
+        System.out.printf("Scanned %d files with %d threads in %d ms: %d packages, %d dependencies, written to '%s'\n",
+            sources.size(), threads, scanTime, graph.size(), edges, outputFile);
+        Collections.sort(failures);
+        for (File failure : failures) {
+            System.out.printf("Could not parse the header of '%s', only its imports before the error are scanned\n",
+                failure);
+        }
+    }
+
+    /**
+     * @param failures where to add the files whose header does not parse; must be thread safe
+     * @return the packages of the given files, each with the packages it imports from, itself excluded
+     */
+    static Map<String, Set<String>> scan(final List<File> sources, int threads, final List<File> failures) {
+        final AtomicInteger nextFile = new AtomicInteger();
+        // parser classes are generated once, before the workers make their own instances
+        final JavaDeclarationParser template = ParserClassCache.createParser(JavaDeclarationParser.class);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Map<String, Set<String>>>> workers = new ArrayList<Future<Map<String, Set<String>>>>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(new Callable<Map<String, Set<String>>>() {
+                public Map<String, Set<String>> call() throws IOException {
+                    JavaDeclarationParser parser = template.newInstance();
+                    HeaderListener listener = new HeaderListener();
+                    parser.setListener(listener);
+                    BasicParseRunner<Object> runner
+                        = new BasicParseRunner<Object>(parser.compilationUnitHeader().suppressNode());
+                    MappedFileInputBuffer.Decoder decoder = new MappedFileInputBuffer.Decoder();
+                    Map<String, Set<String>> graph = new TreeMap<String, Set<String>>();
+                    int index;
+                    while ((index = nextFile.getAndIncrement()) < sources.size()) {
+                        listener.reset();
+                        File source = sources.get(index);
+                        if (!runner.run(decoder.decode(source)).matched) failures.add(source);
+                        add(graph, listener.packageName, listener.importedPackages);
+                    }
+                    return graph;
+                }
+            }));
+        }
+
+        Map<String, Set<String>> graph = new TreeMap<String, Set<String>>();
+        try {
+            for (Future<Map<String, Set<String>>> worker : workers) {
+                for (Map.Entry<String, Set<String>> entry : worker.get().entrySet()) {
+                    add(graph, entry.getKey(), entry.getValue());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for scanner threads");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Scanner thread failure", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return graph;
+    }
+
+    private static void add(Map<String, Set<String>> graph, String packageName, Set<String> importedPackages) {
+        Set<String> dependencies = graph.get(packageName);
+        if (dependencies == null) {
+            dependencies = new TreeSet<String>();
+            graph.put(packageName, dependencies);
+        }
+        for (String importedPackage : importedPackages) {
+            if (!importedPackage.equals(packageName)) dependencies.add(importedPackage);
+        }
+    }
+
+    /**
+     * Returns the package an import is from
+     *
+     * <p>Following naming conventions, the package ends before the first
+     * name starting with an upper case letter, which is that of a type. If
+     * there is none, the last name is taken to be that of a type, or the
+     * {@code *} of an import on demand; for a static import, the name before
+     * it is taken to be that of a type as well.</p>
+     *
+     * @param name the imported name, as reported by {@link JavaDeclarationListener#onImport}
+     * @param isStatic whether the import is a static one
+     * @return the package, empty for the default package
+     */
+    static String packageOf(String name, boolean isStatic) {
+        int start = 0;
+        while (true) {
+            if (Character.isUpperCase(name.charAt(start))) return start == 0 ? "" : name.substring(0, start - 1);
+            int dot = name.indexOf('.', start);
+            if (dot < 0) break;
+            start = dot + 1;
+        }
+        int end = name.lastIndexOf('.');
+        if (isStatic && end > 0) end = name.lastIndexOf('.', end - 1);
+        return end < 0 ? "" : name.substring(0, end);
+    }
+}
@@ -0,0 +1,135 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.matchers.CustomMatcher;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * Matcher for Java keywords (JLS 3.9)
+ *
+ * <p>Instead of trying each keyword in turn and then checking that no letter
+ * or digit follows, this matcher reads the letters and digits at the current
+ * index once, and looks them up in a perfect hash table of the keywords. It
+ * matches either any keyword, or a given one.</p>
+ *
+ * <p>As with {@code testNot(letterOrDigit())} in the grammar, a keyword
+ * followed by a unicode escape is not a keyword, whatever the escaped
+ * character, and neither is a keyword followed by a supplementary character
+ * which is a letter or digit.</p>
+ */
+public class JavaKeywordMatcher extends CustomMatcher {
+
+    private static final String[] KEYWORDS = {
+        "assert", "break", "case", "catch", "class", "const", "continue", "default", "do", "else", "enum", "extends",
+        "finally", "final", "for", "goto", "if", "implements", "import", "interface", "instanceof", "new", "package",
+        "return", "static", "super", "switch", "synchronized", "this", "throws", "throw", "try", "void", "while"
+    };
+
+    // for the keywords above, (hash ^ hash >>> 6) & 255 has no collisions, hash being that of String.hashCode()
+    private static final int HASH_SHIFT = 6;
+    private static final String[] TABLE = new String[256];
+    private static final int MAX_LENGTH;
+
+    static {
+        int maxLength = 0;
+        for (String keyword : KEYWORDS) {
+            int index = indexOf(keyword.hashCode());
+            if (TABLE[index] != null) {
+                throw new IllegalStateException("keywords " + TABLE[index] + " and " + keyword + " collide");
+            }
+            TABLE[index] = keyword;
+            maxLength = Math.max(maxLength, keyword.length());
+        }
+        MAX_LENGTH = maxLength;
+    }
+
+    // null to match any keyword
+    private final String keyword;
+
+    /**
+     * Create a matcher for any keyword
+     */
+    public JavaKeywordMatcher() {
+        super("keyword");
+        keyword = null;
+    }
+
+    /**
+     * Create a matcher for a given keyword
+     *
+     * @param keyword the keyword
+     */
+    public JavaKeywordMatcher(String keyword) {
+        super(keyword);
+        checkArgNotNull(keyword, "keyword");
+        checkArgument(keyword.equals(TABLE[indexOf(keyword.hashCode())]), "not a keyword: " + keyword);
+        this.keyword = keyword;
+    }
+
+    @Override
+    public final boolean isSingleCharMatcher() {
+        return false;
+    }
+
+    @Override
+    public final boolean canMatchEmpty() {
+        return false;
+    }
+
+    @Override
+    public boolean isStarterChar(char c) {
+        return keyword == null ? 'a' <= c && c <= 'z' : c == keyword.charAt(0);
+    }
+
+    @Override
+    public final char getStarterChar() {
+        return keyword == null ? 'a' : keyword.charAt(0);
+    }
+
+    public final <V> boolean match(MatcherContext<V> context) {
+        InputBuffer input = context.getInputBuffer();
+        int start = context.getCurrentIndex();
+        int length = 0;
+        int hash = 0;
+        char c;
+        while (Character.isJavaIdentifierPart(c = input.charAt(start + length))) {
+            if (++length > MAX_LENGTH) return false;
+            hash = 31 * hash + c;
+        }
+        if (length == 0 || c == '\\' && isUnicodeEscape(input, start + length)) return false;
+        if (Character.isHighSurrogate(c)) {
+            char low = input.charAt(start + length + 1);
+            if (Character.isLowSurrogate(low) && Character.isJavaIdentifierPart(Character.toCodePoint(c, low))) {
+                return false;
+            }
+        }
+
+        String found = TABLE[indexOf(hash)];
+        if (found == null || found.length() != length || keyword != null && !keyword.equals(found)) return false;
+        for (int i = 0; i < length; i++) {
+            if (input.charAt(start + i) != found.charAt(i)) return false;
+        }
+        context.advanceIndex(length);
+        context.createNode();
+        return true;
+    }
+
+    private static int indexOf(int hash) {
+        return (hash ^ hash >>> HASH_SHIFT) & (TABLE.length - 1);
+    }
+
+    // whether a unicode escape, as matched by JavaParser.unicodeEscape() after a backslash, starts at the index
+    private static boolean isUnicodeEscape(InputBuffer input, int index) {
+        int i = index + 1;
+        if (input.charAt(i) != 'u') return false;
+        while (input.charAt(i) == 'u') i++;
+        for (int end = i + 4; i < end; i++) {
+            char c = input.charAt(i);
+            if (!('0' <= c && c <= '9' || 'a' <= c && c <= 'f' || 'A' <= c && c <= 'F')) return false;
+        }
+        return true;
+    }
+}
@@ -23,7 +23,7 @@ public class JavaLetterMatcher extends AbstractJavaCharacterMatcher {
     }
 
     @Override
-    protected boolean acceptChar(char c) {
-        return Character.isJavaIdentifierStart(c);
+    protected boolean acceptCodePoint(int codePoint) {
+        return Character.isJavaIdentifierStart(codePoint);
     }
 }
@@ -23,7 +23,7 @@ public class JavaLetterOrDigitMatcher extends AbstractJavaCharacterMatcher {
     }
 
     @Override
-    protected boolean acceptChar(char c) {
-        return Character.isJavaIdentifierPart(c);
+    protected boolean acceptCodePoint(int codePoint) {
+        return Character.isJavaIdentifierPart(codePoint);
     }
 }
@@ -0,0 +1,130 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.examples.ParserClassCache;
+import org.parboiled.parserunners.BasicParseRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outline of all Java sources of a directory, as reported by an {@link
+ * OutlineJavaParser} parsing without a parse tree
+ *
+ * <p>Arguments are {@code [-validate] [-quiet] [-warmup <n>] [<directory>]};
+ * the directory defaults to the current directory. Method bodies and
+ * initializers are skipped, unless {@code -validate} is given, in which case
+ * files are fully parsed by a {@link JavaDeclarationParser}. The
+ * declarations of each file are printed, nested types indented, unless {@code
+ * -quiet} is given, in which case they are only counted. The whole set of
+ * files is parsed {@code -warmup} times (none by default) beforehand. The
+ * report gives the parse time and the memory allocated while parsing,
+ * reading files excluded.</p>
+ */
+public final class JavaOutline {
+
+    private JavaOutline() {
+    }
+
+    private static final class Printer implements JavaDeclarationListener {
+        private final boolean quiet;
+        private int depth;
+        private long events;
+
+        Printer(boolean quiet) {
+            this.quiet = quiet;
+        }
+
+        public void onPackage(String name, int start, int end) {
+            print("package " + name, start, end);
+        }
+
+        public void onImport(String name, boolean isStatic, int start, int end) {
+            print((isStatic ? "import static " : "import ") + name, start, end);
+        }
+
+        public void onTypeStart(TypeKind kind, String name, int start) {
+            print(kind.name().toLowerCase() + ' ' + name, start, -1);
+            depth++;
+        }
+
+        public void onTypeEnd(int end) {
+            depth--;
+        }
+
+        public void onMethod(String name, boolean isConstructor, int start, int end) {
+            print((isConstructor ? "constructor " : "method ") + name, start, end);
+        }
+
+        public void onField(String name, int start, int end) {
+            print("field " + name, start, end);
+        }
+
+        private void print(String declaration, int start, int end) {
+            events++;
+            if (quiet) return;
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i <= depth; i++) line.append("    ");
+            line.append(declaration).append(" @").append(start);
+            if (end >= 0) line.append('-').append(end);
+            System.out.println(line);
+        }
+    }
+
+    public static void main(String[] args) {
+        boolean validate = false;
+        boolean quiet = false;
+        int warmupIterations = 0;
+        File baseDir = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("-validate".equals(args[i])) {
+                validate = true;
+            } else if ("-quiet".equals(args[i])) {
+                quiet = true;
+            } else if ("-warmup".equals(args[i]) && i + 1 < args.length) {
+                warmupIterations = Math.max(Integer.parseInt(args[++i]), 0);
+            } else {
+                baseDir = new File(args[i]);
+            }
+        }
+        if (baseDir == null || !baseDir.exists()) baseDir = new File(".");
+        List<File> sources = Main.recursiveGetAllJavaSources(baseDir, new ArrayList<File>());
+
+        JavaDeclarationParser parser = validate ? ParserClassCache.createParser(JavaDeclarationParser.class)
+            : ParserClassCache.createParser(OutlineJavaParser.class);
+        BasicParseRunner<Object> runner = new BasicParseRunner<Object>(parser.compilationUnit().suppressNode());
+        for (int i = 0; i < warmupIterations; i++) {
+            parser.setListener(new Printer(true));
+            for (File source : sources) runner.run(Main.readAllText(source));
+        }
+
+        Printer printer = new Printer(quiet);
+        parser.setListener(printer);
+        List<File> failures = new ArrayList<File>();
+        long characters = 0;
+        long time = 0;
+        long allocated = 0;
+        for (File source : sources) {
+            String text = Main.readAllText(source);
+            if (!quiet) System.out.println(source);
+            long allocatedBefore = AllocationMeter.allocatedBytes();
+            long start = System.nanoTime();
+            boolean matched = runner.run(text).matched;
+            time += System.nanoTime() - start;
+            allocated += AllocationMeter.allocatedBytes() - allocatedBefore;
+            characters += text.length();
+            if (!matched) failures.add(source);
+        }
+
+        long millis = Math.max(time / 1000000, 1);
+        System.out.printf("\nParsed %d files (%d characters) in %d ms, %.0f files/s, reporting %d declarations\n",
+            sources.size(), characters, millis, sources.size() * 1000.0 / millis, printer.events);
+        if (AllocationMeter.isSupported()) {
+            System.out.printf("Allocated while parsing: %d bytes per file, %.2f bytes per character\n",
+                allocated / Math.max(sources.size(), 1), (double) allocated / Math.max(characters, 1));
+        }
+        for (File failure : failures) {
+            System.out.printf("Could not parse '%s', its outline is incomplete\n", failure);
+        }
+    }
+}
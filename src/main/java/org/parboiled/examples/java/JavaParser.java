@@ -59,6 +59,13 @@ public class JavaParser extends BaseParser<Object> {
             zeroOrMore(importDeclaration()), zeroOrMore(typeDeclaration()), EOI);
     }
 
+    // the package and import declarations only, stopping right before the first type declaration
+    public Rule compilationUnitHeader() {
+        return sequence(spacing(), optional(packageDeclaration()),
+            zeroOrMore(importDeclaration()),
+            test(firstOf(EOI, SEMI, AT, CLASS, ENUM, INTERFACE, modifier())));
+    }
+
     Rule packageDeclaration() {
         return sequence(zeroOrMore(annotation()),
             sequence(PACKAGE, qualifiedIdentifier(), SEMI));
@@ -390,8 +397,17 @@ public class JavaParser extends BaseParser<Object> {
     }
 
     Rule conditionalExpression() {
-        return sequence(conditionalOrExpression(),
-            zeroOrMore(QUERY, expression(), COLON, conditionalOrExpression()));
+        return sequence(binaryExpression(),
+            zeroOrMore(QUERY, expression(), COLON, binaryExpression()));
+    }
+
+    // the same as conditionalOrExpression(), without going through one rule per precedence level
+    @SkipNode
+    Rule binaryExpression() {
+        return new BinaryExpressionMatcher(conditionalOrExpression(), unaryExpression(), new Rule[][] {
+            { OROR }, { ANDAND }, { OR }, { HAT }, { AND }, { EQUAL, NOTEQUAL }, { LE, GE, LT, GT, INSTANCEOF },
+            { SL, SR, BSR }, { PLUS, MINUS }, { STAR, DIV, MOD }
+        }, INSTANCEOF, referenceType());
     }
 
     Rule conditionalOrExpression() {
@@ -729,18 +745,9 @@ public class JavaParser extends BaseParser<Object> {
 
     @SuppressNode
     Rule spacing() {
-        return zeroOrMore(firstOf(
-
-            // whitespace
-            oneOrMore(anyOf(" \t\r\n\f").label("Whitespace")),
-
-            // traditional comment
-            sequence("/*", zeroOrMore(testNot("*/"), ANY), "*/"),
-
-            // end of line comment
-            sequence("//", zeroOrMore(testNot(anyOf("\r\n")), ANY),
-                firstOf("\r\n", '\r', '\n', EOI))
-        ));
+        // whitespace, traditional comments and end of line comments, skipped in a single loop rather than with
+        // one rule per character; see JavaSpacingMatcher for the equivalent rule
+        return new JavaSpacingMatcher();
     }
 
     //-------------------------------------------------------------------------
@@ -759,6 +766,7 @@ public class JavaParser extends BaseParser<Object> {
 
     Rule letter() {
         // switch to this "reduced" character space version for a ~10% parser performance speedup
+        // (measured before the matcher looked Latin-1 characters up in a bitset)
         //return FirstOf(CharRange('a', 'z'), CharRange('A', 'Z'), '_', '$');
         return firstOf(sequence('\\', unicodeEscape()), new JavaLetterMatcher());
     }
@@ -766,6 +774,7 @@ public class JavaParser extends BaseParser<Object> {
     @MemoMismatches
     Rule letterOrDigit() {
         // switch to this "reduced" character space version for a ~10% parser performance speedup
+        // (measured before the matcher looked Latin-1 characters up in a bitset)
         //return FirstOf(CharRange('a', 'z'), CharRange('A', 'Z'), CharRange('0', '9'), '_', '$');
         return firstOf(sequence('\\', unicodeEscape()),
             new JavaLetterOrDigitMatcher());
@@ -775,16 +784,17 @@ public class JavaParser extends BaseParser<Object> {
     //  JLS 3.9  Keywords
     //-------------------------------------------------------------------------
 
-    @MemoMismatches
     Rule keyword() {
-        return sequence(
-            firstOf("assert", "break", "case", "catch", "class", "const",
-                "continue", "default", "do", "else", "enum", "extends",
-                "finally", "final", "for", "goto", "if", "implements", "import",
-                "interface", "instanceof", "new", "package", "return", "static",
-                "super", "switch", "synchronized", "this", "throws", "throw",
-                "try", "void", "while"), testNot(letterOrDigit())
-        );
+        // a single lookup of the letters and digits at the current index, instead of:
+        //return sequence(
+        //    firstOf("assert", "break", "case", "catch", "class", "const",
+        //        "continue", "default", "do", "else", "enum", "extends",
+        //        "finally", "final", "for", "goto", "if", "implements", "import",
+        //        "interface", "instanceof", "new", "package", "return", "static",
+        //        "super", "switch", "synchronized", "this", "throws", "throw",
+        //        "try", "void", "while"), testNot(letterOrDigit())
+        //);
+        return new JavaKeywordMatcher();
     }
 
     public final Rule ASSERT = keyword("assert");
@@ -823,7 +833,8 @@ public class JavaParser extends BaseParser<Object> {
     @SuppressNode
     @DontLabel
     Rule keyword(String keyword) {
-        return terminal(keyword, letterOrDigit());
+        // the same as terminal(keyword, letterOrDigit())
+        return sequence(new JavaKeywordMatcher(keyword), spacing()).label('\'' + keyword + '\'');
     }
 
     //-------------------------------------------------------------------------
@@ -0,0 +1,88 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.support.ParsingResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Run of the Java parser over all Java sources of a directory, with rules memoized as configured at runtime
+ *
+ * <p>Arguments are those of {@link Main}, except {@code -compactTree}, plus {@code [-memo <policy>] [-memoSize <n>]
+ * [-memoWarmup <runs>] [-memoRate <rate>]}. The policy is that of {@link MemoizingParseRunner#parsePolicy(String,
+ * Map)}, for instance {@code identifier=full,*=mismatches}; by default, the mismatches of the rules annotated with
+ * {@code @MemoMismatches} in {@link JavaParser} are memoized, so as to tell what each one buys. The memo table holds
+ * {@code -memoSize} entries (65536 by default). The memoization figures of each rule are printed at the end.</p>
+ *
+ * <p>Rules in {@code adaptive} mode, such as all rules with {@code *=adaptive}, are observed over the first {@code
+ * -memoWarmup} files parsed (100 by default), then memoized or not depending on how often they ran again at the same
+ * index; see {@link MemoizingParseRunner}. Their matches, or mismatches, are memoized if at least {@code -memoRate}
+ * of them (0.1 by default) were such revisits. The chosen set is printed as a policy, to be given to {@code -memo} in
+ * later runs, or turned into annotations of the grammar.</p>
+ */
+public class JavaParserMemoizer extends Main {
+
+    private static final String DEFAULT_POLICY
+        = "basicType=mismatches,annotation=mismatches,identifier=mismatches,letterOrDigit=mismatches,"
+        + "hexNumeral=mismatches";
+
+    private final Map<String, MemoizingParseRunner.Mode> modes = new HashMap<String, MemoizingParseRunner.Mode>();
+    private MemoizingParseRunner.Mode defaultMode;
+    private int capacity = 65536;
+    private int warmupRuns = 100;
+    private double minRevisitRate = 0.1;
+    private MemoizingParseRunner<Object> parseRunner;
+
+    public static void main(String[] args) {
+        new JavaParserMemoizer().run(args);
+    }
+
+    @Override
+    protected void run(String[] args) {
+        String policy = DEFAULT_POLICY;
+        List<String> mainArgs = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-memo".equals(args[i]) && i + 1 < args.length) {
+                policy = args[++i];
+            } else if ("-memoSize".equals(args[i]) && i + 1 < args.length) {
+                capacity = Math.max(Integer.parseInt(args[++i]), 1);
+            } else if ("-memoWarmup".equals(args[i]) && i + 1 < args.length) {
+                warmupRuns = Math.max(Integer.parseInt(args[++i]), 1);
+            } else if ("-memoRate".equals(args[i]) && i + 1 < args.length) {
+                minRevisitRate = Double.parseDouble(args[++i]);
+            } else if ("-compactTree".equals(args[i])) {
+                // files are parsed by the memoizing runner, which builds no compact tree
+                System.out.println("-compactTree cannot be combined with memoization");
+                System.exit(1);
+            } else {
+                mainArgs.add(args[i]);
+            }
+        }
+        try {
+            defaultMode = MemoizingParseRunner.parsePolicy(policy, modes);
+        } catch (IllegalArgumentException e) {
+            System.out.printf("Invalid memoization policy '%s':\n%s\n", policy, e.getMessage());
+            System.exit(1);
+        }
+
+        super.run(mainArgs.toArray(new String[mainArgs.size()]));
+        if (parseRunner != null) {
+            System.out.println();
+            System.out.println(parseRunner.printStatistics());
+        }
+    }
+
+    // all files are parsed through the same runner and memo table, so parallel parsing (-threads) is serialized here
+    @Override
+    protected synchronized ParsingResult<?> run(Rule rootRule, InputBuffer input) {
+        if (parseRunner == null) {
+            parseRunner = new MemoizingParseRunner<Object>(rootRule, modes, defaultMode, capacity, warmupRuns,
+                minRevisitRate);
+        }
+        return parseRunner.run(input);
+    }
+}
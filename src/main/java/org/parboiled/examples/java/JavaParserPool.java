@@ -0,0 +1,242 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.Rule;
+import org.parboiled.examples.ParserClassCache;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * A bounded pool of ready to use {@link JavaParser} instances
+ *
+ * <p>Creating a parser instance and building its rules is costly; this pool
+ * keeps instances, along with their {@code compilationUnit()} rule, around
+ * for reuse. A parser is {@link #borrow() borrowed}, used by a single thread,
+ * then {@link #release(Lease) released}. At most {@code maxSize} parsers are
+ * borrowed at any time; further borrowers wait for one to be released.</p>
+ *
+ * <p>Parsers which have been idle for longer than the idle timeout are
+ * dropped, down to {@code minIdle} of them. This happens whenever a parser
+ * is borrowed or released, and on calls to {@link #evictIdle()}.</p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+public final class JavaParserPool {
+
+    /**
+     * A parser instance borrowed from the pool
+     */
+    public static final class Lease {
+        private final JavaParser parser;
+        private final Rule rootRule;
+        private boolean borrowed;
+        private long idleSince;
+
+        private Lease(JavaParser parser, Rule rootRule) {
+            this.parser = parser;
+            this.rootRule = rootRule;
+        }
+
+        public JavaParser getParser() {
+            return parser;
+        }
+
+        /**
+         * @return the {@code compilationUnit()} rule of the parser
+         */
+        public Rule getRootRule() {
+            return rootRule;
+        }
+    }
+
+    private final JavaParser template;
+    private final boolean buildParseTree;
+    private final int minIdle;
+    private final int maxSize;
+    private final long idleTimeoutNanos;
+    private final Semaphore permits;
+    // most recently released first; guarded by this
+    private final Deque<Lease> idle = new ArrayDeque<Lease>();
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a pool of {@link JavaParser} instances
+     *
+     * @param buildParseTree whether the parsers build parse trees
+     * @param minIdle the number of parsers to create right away, and to keep even when idle
+     * @param maxSize the maximum number of parsers borrowed at the same time
+     * @param idleTimeout how long a parser may stay idle before being dropped
+     * @param unit the unit of the idle timeout
+     */
+    public JavaParserPool(boolean buildParseTree, int minIdle, int maxSize, long idleTimeout, TimeUnit unit) {
+        this(JavaParser.class, buildParseTree, minIdle, maxSize, idleTimeout, unit);
+    }
+
+    /**
+     * @param parserClass the parser class, either {@link JavaParser} or a subclass of it
+     * @param buildParseTree whether the parsers build parse trees
+     * @param minIdle the number of parsers to create right away, and to keep even when idle
+     * @param maxSize the maximum number of parsers borrowed at the same time
+     * @param idleTimeout how long a parser may stay idle before being dropped
+     * @param unit the unit of the idle timeout
+     */
+    public JavaParserPool(Class<? extends JavaParser> parserClass, boolean buildParseTree, int minIdle, int maxSize,
+                          long idleTimeout, TimeUnit unit) {
+        checkArgNotNull(parserClass, "parserClass");
+        checkArgument(maxSize > 0, "maxSize must be positive");
+        checkArgument(0 <= minIdle && minIdle <= maxSize, "minIdle must be between 0 and maxSize");
+        checkArgument(idleTimeout >= 0, "idleTimeout must not be negative");
+        checkArgNotNull(unit, "unit");
+        template = ParserClassCache.createParser(parserClass);
+        this.buildParseTree = buildParseTree;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        idleTimeoutNanos = unit.toNanos(idleTimeout);
+        permits = new Semaphore(maxSize, true);
+        long now = System.nanoTime();
+        for (int i = 0; i < minIdle; i++) {
+            Lease lease = create();
+            lease.idleSince = now;
+            idle.add(lease);
+        }
+    }
+
+    /**
+     * Borrow a parser, waiting for one to be released if need be
+     *
+     * @return the parser
+     * @throws InterruptedException interrupted while waiting
+     */
+    public Lease borrow() throws InterruptedException {
+        if (!permits.tryAcquire()) {
+            long start = System.nanoTime();
+            permits.acquire();
+            recordWait(System.nanoTime() - start);
+        }
+        return take();
+    }
+
+    /**
+     * Borrow a parser, waiting at most the given time for one to be released
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return the parser, or null if none was released in time
+     * @throws InterruptedException interrupted while waiting
+     */
+    public Lease borrow(long timeout, TimeUnit unit) throws InterruptedException {
+        checkArgNotNull(unit, "unit");
+        if (!permits.tryAcquire()) {
+            long start = System.nanoTime();
+            boolean acquired = permits.tryAcquire(timeout, unit);
+            recordWait(System.nanoTime() - start);
+            if (!acquired) {
+                timeouts.incrementAndGet();
+                return null;
+            }
+        }
+        return take();
+    }
+
+    /**
+     * Give back a borrowed parser
+     *
+     * @param lease the parser, as returned by one of the {@code borrow()} methods
+     */
+    public void release(Lease lease) {
+        checkArgNotNull(lease, "lease");
+        long now = System.nanoTime();
+        synchronized (this) {
+            checkArgument(lease.borrowed, "parser is not borrowed");
+            lease.borrowed = false;
+            lease.idleSince = now;
+            idle.addFirst(lease);
+            evictIdle(now);
+        }
+        permits.release();
+    }
+
+    /**
+     * Drop the parsers which have been idle for longer than the idle timeout, keeping at least {@code minIdle} of them
+     */
+    public synchronized void evictIdle() {
+        evictIdle(System.nanoTime());
+    }
+
+    /**
+     * @return the number of parsers currently borrowed
+     */
+    public int getBorrowedCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public String printStatistics() {
+        return String.format("    %6d borrowed, %6d waited (%d ms total, %d ms max), %6d timed out\n"
+            + "    %6d created,  %6d evicted, %6d idle, %6d in use\n",
+            borrows.get(), waits.get(), waitNanos.get() / 1000000, maxWaitNanos.get() / 1000000, timeouts.get(),
+            created.get(), evictions.get(), getIdleCount(), getBorrowedCount());
+    }
+
+    // called with a permit held
+    private Lease take() {
+        Lease lease;
+        synchronized (this) {
+            evictIdle(System.nanoTime());
+            lease = idle.pollFirst();
+        }
+        if (lease == null) {
+            try {
+                lease = create();
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        synchronized (this) {
+            lease.borrowed = true;
+        }
+        borrows.incrementAndGet();
+        return lease;
+    }
+
+    private Lease create() {
+        JavaParser parser = template.newInstance();
+        Rule rootRule = buildParseTree ? parser.compilationUnit() : parser.compilationUnit().suppressNode();
+        created.incrementAndGet();
+        return new Lease(parser, rootRule);
+    }
+
+    // the least recently released parsers are at the end of the queue
+    private void evictIdle(long now) {
+        while (idle.size() > minIdle && now - idle.peekLast().idleSince > idleTimeoutNanos) {
+            idle.pollLast();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        waits.incrementAndGet();
+        waitNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, nanos)) {
+            // retry
+        }
+    }
+}
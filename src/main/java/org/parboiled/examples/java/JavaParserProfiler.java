@@ -18,8 +18,20 @@ package org.parboiled.examples.java;
 
 import org.parboiled.parserunners.ProfilingParseRunner;
 import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
 import org.parboiled.support.ParsingResult;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Profiling run of the Java parser over all Java sources of a directory
+ *
+ * <p>Arguments are those of {@link Main}, plus {@code [-json <file>] [-csv <file>]} to also export the profile to
+ * these files; see {@link ProfileReports}. Two CSV exports can be compared using {@link ProfileDiff}.</p>
+ */
 public class JavaParserProfiler extends Main {
 
     private ProfilingParseRunner parseRunner;
@@ -30,17 +42,40 @@ public class JavaParserProfiler extends Main {
 
     @Override
     protected void run(String[] args) {
-        super.run(args);
+        File jsonFile = null;
+        File csvFile = null;
+        List<String> mainArgs = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-json".equals(args[i]) && i + 1 < args.length) {
+                jsonFile = new File(args[++i]);
+            } else if ("-csv".equals(args[i]) && i + 1 < args.length) {
+                csvFile = new File(args[++i]);
+            } else {
+                mainArgs.add(args[i]);
+            }
+        }
+
+        super.run(mainArgs.toArray(new String[mainArgs.size()]));
         ProfilingParseRunner.Report report = parseRunner.getReport();
         System.out.println();
         System.out.println(report.print());
+
+        try {
+            if (jsonFile != null) ProfileReports.writeJson(report, jsonFile);
+            if (csvFile != null) ProfileReports.writeCsv(report, csvFile);
+        } catch (IOException e) {
+            System.out.printf("Could not export profile:\n%s\n", e);
+            System.exit(1);
+        }
     }
+
+    // all files are profiled through the same runner, so parallel parsing (-threads) is serialized here
     @Override
-    protected ParsingResult<?> run(Rule rootRule, String sourceText) {
+    protected synchronized ParsingResult<?> run(Rule rootRule, InputBuffer input) {
         if (parseRunner == null) {
             parseRunner = new ProfilingParseRunner(rootRule);
         }
-        return parseRunner.run(sourceText);
+        return parseRunner.run(input);
     }
 
 }
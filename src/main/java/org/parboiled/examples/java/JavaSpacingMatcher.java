@@ -0,0 +1,106 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.matchers.CustomMatcher;
+import org.parboiled.support.Chars;
+
+/**
+ * Matcher for the spacing between Java tokens (JLS 3.6-7)
+ *
+ * <p>This matches the same input as the rule below, which it replaces in
+ * {@link JavaParser#spacing()}, but skips whitespace and comments in a single
+ * loop instead of going through a rule per character:</p>
+ *
+ * <pre>
+ *     zeroOrMore(firstOf(
+ *         oneOrMore(anyOf(" \t\r\n\f")),
+ *         sequence("/*", zeroOrMore(testNot("*&#47;"), ANY), "*&#47;"),
+ *         sequence("//", zeroOrMore(testNot(anyOf("\r\n")), ANY),
+ *             firstOf("\r\n", '\r', '\n', EOI))
+ *     ))
+ * </pre>
+ *
+ * <p>In particular, an unterminated traditional comment is not part of the
+ * spacing, which then ends right before it.</p>
+ */
+public class JavaSpacingMatcher extends CustomMatcher {
+
+    public JavaSpacingMatcher() {
+        super("spacing");
+    }
+
+    @Override
+    public final boolean isSingleCharMatcher() {
+        return false;
+    }
+
+    @Override
+    public final boolean canMatchEmpty() {
+        return true;
+    }
+
+    @Override
+    public boolean isStarterChar(char c) {
+        return isWhitespace(c) || c == '/';
+    }
+
+    @Override
+    public final char getStarterChar() {
+        return ' ';
+    }
+
+    public final <V> boolean match(MatcherContext<V> context) {
+        int start = context.getCurrentIndex();
+        context.advanceIndex(spacingEnd(context.getInputBuffer(), start) - start);
+        context.createNode();
+        return true;
+    }
+
+    /**
+     * @param input the input
+     * @param index the index where the spacing starts
+     * @return the index where the spacing ends
+     */
+    static int spacingEnd(InputBuffer input, int index) {
+        while (true) {
+            char c = input.charAt(index);
+            if (isWhitespace(c)) {
+                index++;
+            } else if (c == '/' && input.charAt(index + 1) == '*') {
+                int end = traditionalCommentEnd(input, index + 2);
+                if (end < 0) return index;
+                index = end;
+            } else if (c == '/' && input.charAt(index + 1) == '/') {
+                index = lineCommentEnd(input, index + 2);
+            } else {
+                return index;
+            }
+        }
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\f';
+    }
+
+    // returns the index after the closing "*/", or -1 if the comment is not closed
+    private static int traditionalCommentEnd(InputBuffer input, int index) {
+        while (true) {
+            char c = input.charAt(index);
+            if (c == Chars.EOI) return -1;
+            if (c == '*' && input.charAt(index + 1) == '/') return index + 2;
+            index++;
+        }
+    }
+
+    // returns the index after the line terminator, if any
+    private static int lineCommentEnd(InputBuffer input, int index) {
+        while (true) {
+            char c = input.charAt(index);
+            if (c == Chars.EOI) return index;
+            if (c == '\n') return index + 1;
+            if (c == '\r') return input.charAt(index + 1) == '\n' ? index + 2 : index + 1;
+            index++;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.examples.ParserClassCache;
+import org.parboiled.parserunners.BasicParseRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds or updates the {@link SymbolIndex} of all Java sources of a
+ * directory
+ *
+ * <p>Arguments are {@code [-index <file>] [<directory>]}; the index file
+ * defaults to {@code symbols.idx}, the directory to the current directory.
+ * Files are parsed by an {@link OutlineJavaParser}, method bodies being
+ * skipped, and the types, methods and fields it reports are indexed.</p>
+ *
+ * <p>If the index file already exists, only the files which are new, or
+ * whose length or modification time changed, are parsed again; the
+ * declarations of the others are taken over from the existing index, and
+ * those of deleted files dropped. The index is then written anew.</p>
+ */
+public final class JavaSymbolIndexer {
+
+    private final OutlineJavaParser parser = ParserClassCache.createParser(OutlineJavaParser.class);
+    private final BasicParseRunner<Object> runner
+        = new BasicParseRunner<Object>(parser.compilationUnit().suppressNode());
+    private final Recorder recorder = new Recorder();
+
+    // records the declarations of a file into a builder, types being recorded from their start to their end
+    private static final class Recorder implements JavaDeclarationListener {
+        SymbolIndexBuilder builder;
+        int file;
+        private int[] openTypes = new int[16];
+        private int depth;
+
+        void reset(SymbolIndexBuilder builder, int file) {
+            this.builder = builder;
+            this.file = file;
+            depth = 0;
+        }
+
+        public void onPackage(String name, int start, int end) {
+        }
+
+        public void onImport(String name, boolean isStatic, int start, int end) {
+        }
+
+        public void onTypeStart(TypeKind kind, String name, int start) {
+            if (depth == openTypes.length) {
+                int[] newOpenTypes = new int[depth * 2];
+                System.arraycopy(openTypes, 0, newOpenTypes, 0, depth);
+                openTypes = newOpenTypes;
+            }
+            // until it ends, the type is recorded as ending where it starts
+            openTypes[depth++] = builder.add(name, file, SymbolIndex.Kind.valueOf(kind.name()), start, start);
+        }
+
+        public void onTypeEnd(int end) {
+            builder.setEnd(openTypes[--depth], end);
+        }
+
+        public void onMethod(String name, boolean isConstructor, int start, int end) {
+            builder.add(name, file, isConstructor ? SymbolIndex.Kind.CONSTRUCTOR : SymbolIndex.Kind.METHOD, start,
+                end);
+        }
+
+        public void onField(String name, int start, int end) {
+            builder.add(name, file, SymbolIndex.Kind.FIELD, start, end);
+        }
+    }
+
+    JavaSymbolIndexer() {
+        parser.setListener(recorder);
+    }
+
+    /**
+     * Records the declarations of the given input as those of the given file
+     *
+     * @return true if the input parsed, false if only the declarations before the first error were recorded
+     */
+    boolean index(InputBuffer input, SymbolIndexBuilder builder, int file) {
+        recorder.reset(builder, file);
+        return runner.run(input).matched;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File indexFile = new File("symbols.idx");
+        File baseDir = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("-index".equals(args[i]) && i + 1 < args.length) {
+                indexFile = new File(args[++i]);
+            } else {
+                baseDir = new File(args[i]);
+            }
+        }
+        if (baseDir == null || !baseDir.exists()) baseDir = new File(".");
+
+        long start = System.currentTimeMillis();
+        List<File> sources = Main.recursiveGetAllJavaSources(baseDir, new ArrayList<File>());
+        SymbolIndex previous = null;
+        if (indexFile.exists()) {
+            try {
+                previous = SymbolIndex.open(indexFile);
+            } catch (IOException e) {
+                System.out.printf("Rebuilding '%s' from scratch: %s\n", indexFile, e.getMessage());
+            }
+        }
+        Map<String, Integer> previousFiles = new HashMap<String, Integer>();
+        for (int i = 0; previous != null && i < previous.getFileCount(); i++) previousFiles.put(previous.getFile(i), i);
+        // the number of each file of the previous index in the new one, or -1 if its declarations are dropped
+        int[] kept = new int[previous == null ? 0 : previous.getFileCount()];
+        Arrays.fill(kept, -1);
+
+        SymbolIndexBuilder builder = new SymbolIndexBuilder();
+        JavaSymbolIndexer indexer = new JavaSymbolIndexer();
+        MappedFileInputBuffer.Decoder decoder = new MappedFileInputBuffer.Decoder();
+        int parsed = 0;
+        List<File> failures = new ArrayList<File>();
+        for (File source : sources) {
+            String path = source.getPath();
+            long length = source.length();
+            long lastModified = source.lastModified();
+            int file = builder.addFile(path, length, lastModified);
+            Integer previousFile = previousFiles.get(path);
+            if (previousFile != null && previous.getFileLength(previousFile) == length
+                && previous.getFileLastModified(previousFile) == lastModified) {
+                kept[previousFile] = file;
+                continue;
+            }
+            if (!indexer.index(decoder.decode(source), builder, file)) failures.add(source);
+            parsed++;
+        }
+        if (previous != null) {
+            for (int name = 0; name < previous.getNameCount(); name++) {
+                String string = null;
+                for (int i = previous.declarationsFrom(name); i < previous.declarationsTo(name); i++) {
+                    int file = kept[previous.declarationFile(i)];
+                    if (file < 0) continue;
+                    if (string == null) string = previous.getName(name);
+                    builder.add(string, file, previous.declarationKind(i), previous.declarationStart(i),
+                        previous.declarationEnd(i));
+                }
+            }
+        }
+        builder.write(indexFile);
+
+        System.out.printf("Indexed %d files (%d parsed, %d unchanged) in %d ms: %d declarations, written to '%s'\n",
+            sources.size(), parsed, sources.size() - parsed, System.currentTimeMillis() - start,
+            builder.getDeclarationCount(), indexFile);
+        for (File failure : failures) {
+            System.out.printf("Could not parse '%s', only its declarations before the error are indexed\n", failure);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.support.Position;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Looks up names in a {@link SymbolIndex} built by {@link JavaSymbolIndexer}
+ *
+ * <p>Arguments are {@code [-index <file>] <name>...}; the index file defaults
+ * to {@code symbols.idx}. The declarations of each name are printed with the
+ * line and column where they start, read from the files themselves, along
+ * with the time the lookup took.</p>
+ */
+public final class JavaSymbolQuery {
+
+    private JavaSymbolQuery() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        File indexFile = new File("symbols.idx");
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-index".equals(args[i]) && i + 1 < args.length) {
+                indexFile = new File(args[++i]);
+            } else {
+                names.add(args[i]);
+            }
+        }
+
+        SymbolIndex index = SymbolIndex.open(indexFile);
+        MappedFileInputBuffer.Decoder decoder = new MappedFileInputBuffer.Decoder();
+        for (String name : names) {
+            long start = System.nanoTime();
+            List<SymbolIndex.Declaration> declarations = index.find(name);
+            long time = System.nanoTime() - start;
+            System.out.printf("%s: %d declaration(s), found in %d us\n", name, declarations.size(), time / 1000);
+            for (SymbolIndex.Declaration declaration : declarations) {
+                System.out.printf("    %s:%s: %s\n", declaration.getFile(),
+                    positionOf(decoder, declaration), declaration.getKind().name().toLowerCase());
+            }
+        }
+    }
+
+    // the position of the declaration if its file can still be read, its index otherwise
+    private static String positionOf(MappedFileInputBuffer.Decoder decoder, SymbolIndex.Declaration declaration) {
+        try {
+            Position position = decoder.decode(new File(declaration.getFile())).getPosition(declaration.getStart());
+            return position.line + ":" + position.column;
+        } catch (IOException e) {
+            return "@" + declaration.getStart();
+        }
+    }
+}
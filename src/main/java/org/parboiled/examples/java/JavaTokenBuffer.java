@@ -0,0 +1,110 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.support.Chars;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.Position;
+
+/**
+ * An {@link InputBuffer} over the tokens of a Java compilation unit
+ *
+ * <p>Each index of this buffer is a token, and the character at that index
+ * is the kind of the token (see {@link JavaTokenizer}); spacing is not part
+ * of the tokens. Tokens are stored as three primitive arrays: their kinds,
+ * and their start and end indices in the source.</p>
+ *
+ * <p>Positions, lines and extracted text are those of the source: the
+ * position of a token is that of its first character, and the text of a
+ * range of tokens runs from the start of the first one to the end of the
+ * last one.</p>
+ *
+ * @see TokenJavaParser
+ */
+public final class JavaTokenBuffer implements InputBuffer {
+
+    private final InputBuffer source;
+    private final int sourceLength;
+    private final char[] kinds;
+    private final int[] starts;
+    private final int[] ends;
+    private final int count;
+
+    JavaTokenBuffer(InputBuffer source, int sourceLength, char[] kinds, int[] starts, int[] ends, int count) {
+        this.source = source;
+        this.sourceLength = sourceLength;
+        this.kinds = kinds;
+        this.starts = starts;
+        this.ends = ends;
+        this.count = count;
+    }
+
+    public int getTokenCount() {
+        return count;
+    }
+
+    public char getKind(int token) {
+        return kinds[token];
+    }
+
+    /**
+     * @param token the token index
+     * @return the index of the first character of the token in the source
+     */
+    public int getStart(int token) {
+        return starts[token];
+    }
+
+    /**
+     * @param token the token index
+     * @return the index after the last character of the token in the source
+     */
+    public int getEnd(int token) {
+        return ends[token];
+    }
+
+    public char charAt(int index) {
+        return 0 <= index && index < count ? kinds[index] : Chars.EOI;
+    }
+
+    public boolean test(int index, char[] characters) {
+        int len = characters.length;
+        if (index < 0 || index > count - len) return false;
+        for (int i = 0; i < len; i++) {
+            if (kinds[index + i] != characters[i]) return false;
+        }
+        return true;
+    }
+
+    public String extract(int start, int end) {
+        if (start < 0) start = 0;
+        if (end > count) end = count;
+        if (end <= start) return "";
+        return source.extract(starts[start], ends[end - 1]);
+    }
+
+    public String extract(IndexRange range) {
+        return extract(range.start, range.end);
+    }
+
+    public Position getPosition(int index) {
+        return source.getPosition(sourceIndexOf(index));
+    }
+
+    public int getOriginalIndex(int index) {
+        return source.getOriginalIndex(sourceIndexOf(index));
+    }
+
+    public String extractLine(int lineNumber) {
+        return source.extractLine(lineNumber);
+    }
+
+    public int getLineCount() {
+        return source.getLineCount();
+    }
+
+    // past the last token is the end of the source, where EOI is
+    private int sourceIndexOf(int index) {
+        if (index < 0) return index;
+        return index < count ? starts[index] : sourceLength;
+    }
+}
@@ -0,0 +1,432 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.buffers.InputBuffer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * Splits a Java compilation unit into tokens, for {@link TokenJavaParser}
+ *
+ * <p>Tokens are split exactly where {@link JavaParser} would split them:
+ * spacing is skipped using {@link JavaSpacingMatcher}, literals are read
+ * following the grammar's own literal rules, and operators are read
+ * greedily, which is what the {@code mustNotFollow} conditions of the
+ * grammar's terminals amount to. The only exception is {@code >}: since
+ * {@code >>} and {@code >>>} may also close nested type arguments, each
+ * {@code >} outside of {@code >=}, {@code >>=} and {@code >>>=} is a token of
+ * its own, of kind {@link #GT_JOINED} if another {@code >} immediately
+ * follows it, and {@link #GT_LAST} otherwise.</p>
+ *
+ * <p>The kind of a token is a character from the Unicode private use area.
+ * Each keyword, each word which is also an identifier (basic types,
+ * modifiers which are not keywords, {@code true}, {@code false} and {@code
+ * null}) and each operator has a kind of its own; see {@link
+ * #kindOf(String)}. A character which cannot start any token is a token of
+ * kind {@link #ERROR}, which no rule accepts.</p>
+ *
+ * <p>Unicode escapes must have been translated beforehand, which is why this
+ * works on a {@link UnicodeEscapeInputBuffer}.</p>
+ */
+public final class JavaTokenizer {
+
+    private static final char FIRST_KIND = '\uE000';
+
+    public static final char IDENTIFIER = FIRST_KIND;
+    public static final char INTEGER_LITERAL = FIRST_KIND + 1;
+    public static final char FLOAT_LITERAL = FIRST_KIND + 2;
+    public static final char CHAR_LITERAL = FIRST_KIND + 3;
+    public static final char STRING_LITERAL = FIRST_KIND + 4;
+    public static final char GT_JOINED = FIRST_KIND + 5;
+    public static final char GT_LAST = FIRST_KIND + 6;
+    public static final char ERROR = FIRST_KIND + 7;
+
+    static final String[] KEYWORDS = {
+        "assert", "break", "case", "catch", "class", "const", "continue", "default", "do", "else", "enum", "extends",
+        "finally", "final", "for", "goto", "if", "implements", "import", "interface", "instanceof", "new", "package",
+        "return", "static", "super", "switch", "synchronized", "this", "throws", "throw", "try", "void", "while"
+    };
+
+    // words with a kind of their own, which JavaParser.identifier() nevertheless accepts
+    static final String[] IDENTIFIER_WORDS = {
+        "byte", "short", "char", "int", "long", "float", "double", "boolean",
+        "public", "protected", "private", "abstract", "native", "transient", "volatile", "strictfp",
+        "true", "false", "null"
+    };
+
+    // all terminals of JavaParser but ">", ">>" and ">>>", which are made of GT_JOINED and GT_LAST tokens
+    private static final String[] OPERATORS = {
+        "@", "&", "&&", "&=", "!", ">>>=", ":", ",", "--", "/", "/=", ".", "...", "=", "==", ">=", "^", "^=", "++",
+        "[", "<=", "(", "<", "{", "-", "-=", "%", "%=", "!=", "|", "|=", "||", "+", "+=", "?", "]", ")", "}", ";",
+        "<<", "<<=", ">>=", "*", "*=", "~"
+    };
+
+    private static final Map<String, Character> KINDS = new HashMap<String, Character>();
+
+    // open addressing hash table of the words with a kind of their own
+    private static final String[] WORDS = new String[128];
+    private static final int[] WORD_HASHES = new int[WORDS.length];
+    private static final char[] WORD_KINDS = new char[WORDS.length];
+
+    // operators by first character, longest first
+    private static final char[][][] OPERATOR_SPELLINGS = new char[128][][];
+    private static final char[][] OPERATOR_KINDS = new char[128][];
+
+    static {
+        char kind = FIRST_KIND + 8;
+        for (String keyword : KEYWORDS) KINDS.put(keyword, kind++);
+        for (String word : IDENTIFIER_WORDS) KINDS.put(word, kind++);
+        for (String operator : OPERATORS) KINDS.put(operator, kind++);
+
+        for (String word : KEYWORDS) addWord(word);
+        for (String word : IDENTIFIER_WORDS) addWord(word);
+
+        for (char c = 0; c < OPERATOR_SPELLINGS.length; c++) {
+            List<String> operators = new ArrayList<String>();
+            for (String operator : OPERATORS) {
+                if (operator.charAt(0) != c) continue;
+                int i = 0;
+                while (i < operators.size() && operators.get(i).length() >= operator.length()) i++;
+                operators.add(i, operator);
+            }
+            if (operators.isEmpty()) continue;
+            OPERATOR_SPELLINGS[c] = new char[operators.size()][];
+            OPERATOR_KINDS[c] = new char[operators.size()];
+            for (int i = 0; i < operators.size(); i++) {
+                OPERATOR_SPELLINGS[c][i] = operators.get(i).toCharArray();
+                OPERATOR_KINDS[c][i] = KINDS.get(operators.get(i));
+            }
+        }
+    }
+
+    private final UnicodeEscapeInputBuffer input;
+    private final int length;
+    private char[] kinds;
+    private int[] starts;
+    private int[] ends;
+    private int count;
+
+    private JavaTokenizer(UnicodeEscapeInputBuffer input) {
+        this.input = input;
+        length = input.length();
+        // about one token every five characters in typical sources
+        int capacity = Math.max(16, length / 5);
+        kinds = new char[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+    }
+
+    /**
+     * @param spelling a keyword, a word which is also an identifier, or an operator other than {@code >}, {@code >>}
+     * and {@code >>>}
+     * @return the kind of the tokens with this spelling
+     */
+    public static char kindOf(String spelling) {
+        Character kind = KINDS.get(spelling);
+        checkArgument(kind != null, "no token kind for " + spelling);
+        return kind;
+    }
+
+    /**
+     * @param input the compilation unit, with its unicode escapes translated
+     * @return the tokens
+     */
+    public static JavaTokenBuffer tokenize(UnicodeEscapeInputBuffer input) {
+        checkArgNotNull(input, "input");
+        return new JavaTokenizer(input).run();
+    }
+
+    private JavaTokenBuffer run() {
+        int index = JavaSpacingMatcher.spacingEnd(input, 0);
+        while (index < length) {
+            index = JavaSpacingMatcher.spacingEnd(input, readToken(index));
+        }
+        return new JavaTokenBuffer(input, length, kinds, starts, ends, count);
+    }
+
+    // adds the token starting at the index, and returns its end
+    private int readToken(int index) {
+        char c = input.charAt(index);
+        int end;
+        if (isIdentifierStart(c, index)) {
+            return readWord(index);
+        }
+        if (isDigit(c) || c == '.' && isDigit(input.charAt(index + 1))) {
+            end = floatLiteral(index);
+            if (end >= 0) return add(FLOAT_LITERAL, index, end);
+            return add(INTEGER_LITERAL, index, integerLiteral(index));
+        }
+        if (c == '\'') {
+            end = charLiteral(index);
+            return end >= 0 ? add(CHAR_LITERAL, index, end) : add(ERROR, index, index + 1);
+        }
+        if (c == '"') {
+            end = stringLiteral(index);
+            return end >= 0 ? add(STRING_LITERAL, index, end) : add(ERROR, index, index + 1);
+        }
+        if (c == '>') {
+            // ">=", ">>=" and ">>>=" are operators as usual
+            char[][] spellings = OPERATOR_SPELLINGS['>'];
+            for (int i = 0; i < spellings.length; i++) {
+                if (input.test(index, spellings[i])) {
+                    return add(OPERATOR_KINDS['>'][i], index, index + spellings[i].length);
+                }
+            }
+            return add(input.charAt(index + 1) == '>' ? GT_JOINED : GT_LAST, index, index + 1);
+        }
+        if (c < OPERATOR_SPELLINGS.length && OPERATOR_SPELLINGS[c] != null) {
+            char[][] spellings = OPERATOR_SPELLINGS[c];
+            for (int i = 0; i < spellings.length; i++) {
+                if (input.test(index, spellings[i])) {
+                    return add(OPERATOR_KINDS[c][i], index, index + spellings[i].length);
+                }
+            }
+        }
+        return add(ERROR, index, index + 1);
+    }
+
+    private int add(char kind, int start, int end) {
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            char[] newKinds = new char[capacity];
+            int[] newStarts = new int[capacity];
+            int[] newEnds = new int[capacity];
+            System.arraycopy(kinds, 0, newKinds, 0, count);
+            System.arraycopy(starts, 0, newStarts, 0, count);
+            System.arraycopy(ends, 0, newEnds, 0, count);
+            kinds = newKinds;
+            starts = newStarts;
+            ends = newEnds;
+        }
+        kinds[count] = kind;
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+        return end;
+    }
+
+    //-------------------------------------------------------------------------
+    //  Words
+    //-------------------------------------------------------------------------
+
+    private static void addWord(String word) {
+        int hash = word.hashCode();
+        int index = slotOf(hash);
+        while (WORDS[index] != null) index = (index + 1) & (WORDS.length - 1);
+        WORDS[index] = word;
+        WORD_HASHES[index] = hash;
+        WORD_KINDS[index] = KINDS.get(word);
+    }
+
+    private static int slotOf(int hash) {
+        return (hash ^ hash >>> 7) & (WORDS.length - 1);
+    }
+
+    private boolean isIdentifierStart(char c, int index) {
+        if (!Character.isHighSurrogate(c)) return Character.isJavaIdentifierStart(c);
+        char low = input.charAt(index + 1);
+        return Character.isLowSurrogate(low) && Character.isJavaIdentifierStart(Character.toCodePoint(c, low));
+    }
+
+    // reads an identifier, keyword or other word, computing its String.hashCode() on the way
+    private int readWord(int start) {
+        int index = start;
+        int hash = 0;
+        while (true) {
+            char c = input.charAt(index);
+            if (Character.isHighSurrogate(c)) {
+                char low = input.charAt(index + 1);
+                if (!Character.isLowSurrogate(low)
+                    || !Character.isJavaIdentifierPart(Character.toCodePoint(c, low))) break;
+                hash = 31 * (31 * hash + c) + low;
+                index += 2;
+            } else if (Character.isJavaIdentifierPart(c)) {
+                hash = 31 * hash + c;
+                index++;
+            } else {
+                break;
+            }
+        }
+        return add(wordKind(start, index, hash), start, index);
+    }
+
+    private char wordKind(int start, int end, int hash) {
+        for (int slot = slotOf(hash); WORDS[slot] != null; slot = (slot + 1) & (WORDS.length - 1)) {
+            String word = WORDS[slot];
+            if (WORD_HASHES[slot] != hash || word.length() != end - start) continue;
+            int i = 0;
+            while (i < word.length() && input.charAt(start + i) == word.charAt(i)) i++;
+            if (i == word.length()) return WORD_KINDS[slot];
+        }
+        return IDENTIFIER;
+    }
+
+    //-------------------------------------------------------------------------
+    //  Literals, following the rules of JavaParser; these return the end
+    //  index of the literal, or -1 if there is none
+    //-------------------------------------------------------------------------
+
+    private int floatLiteral(int index) {
+        int end = hexFloat(index);
+        return end >= 0 ? end : decimalFloat(index);
+    }
+
+    private int decimalFloat(int index) {
+        int digitsEnd = digits(index);
+        if (digitsEnd > index) {
+            if (input.charAt(digitsEnd) == '.') {
+                int end = digits(digitsEnd + 1);
+                return optional(optionalExponent(end), "fFdD");
+            }
+            int exponentEnd = exponent(digitsEnd);
+            if (exponentEnd >= 0) return optional(exponentEnd, "fFdD");
+            return isOneOf(input.charAt(digitsEnd), "fFdD") ? digitsEnd + 1 : -1;
+        }
+        if (input.charAt(index) != '.') return -1;
+        int end = digits(index + 1);
+        return end > index + 1 ? optional(optionalExponent(end), "fFdD") : -1;
+    }
+
+    private int exponent(int index) {
+        if (!isOneOf(input.charAt(index), "eE")) return -1;
+        int start = optional(index + 1, "+-");
+        int end = digits(start);
+        return end > start ? end : -1;
+    }
+
+    private int optionalExponent(int index) {
+        int end = exponent(index);
+        return end >= 0 ? end : index;
+    }
+
+    private int hexFloat(int index) {
+        int end = hexSignificant(index);
+        if (end < 0) return -1;
+        end = binaryExponent(end);
+        return end >= 0 ? optional(end, "fFdD") : -1;
+    }
+
+    private int hexSignificant(int index) {
+        if (input.charAt(index) == '0' && isOneOf(input.charAt(index + 1), "xX")) {
+            int dot = hexDigits(index + 2);
+            if (input.charAt(dot) == '.') {
+                int end = hexDigits(dot + 1);
+                if (end > dot + 1) return end;
+            }
+        }
+        int end = hexNumeral(index);
+        return end >= 0 ? optional(end, ".") : -1;
+    }
+
+    private int binaryExponent(int index) {
+        if (!isOneOf(input.charAt(index), "pP")) return -1;
+        int start = optional(index + 1, "+-");
+        int end = digits(start);
+        return end > start ? end : -1;
+    }
+
+    // always matches, since it is only tried on a digit
+    private int integerLiteral(int index) {
+        int end = hexNumeral(index);
+        if (end < 0) end = octalNumeral(index);
+        if (end < 0) end = decimalNumeral(index);
+        return optional(end, "lL");
+    }
+
+    private int hexNumeral(int index) {
+        if (input.charAt(index) != '0' || !isOneOf(input.charAt(index + 1), "xX")) return -1;
+        int end = hexDigits(index + 2);
+        return end > index + 2 ? end : -1;
+    }
+
+    private int octalNumeral(int index) {
+        if (input.charAt(index) != '0') return -1;
+        int end = index + 1;
+        while ('0' <= input.charAt(end) && input.charAt(end) <= '7') end++;
+        return end > index + 1 ? end : -1;
+    }
+
+    private int decimalNumeral(int index) {
+        char c = input.charAt(index);
+        if (c == '0') return index + 1;
+        return '1' <= c && c <= '9' ? digits(index + 1) : -1;
+    }
+
+    private int charLiteral(int index) {
+        int end = escape(index + 1);
+        if (end < 0) {
+            char c = input.charAt(index + 1);
+            if (index + 1 >= length || c == '\'' || c == '\\') return -1;
+            end = index + 2;
+        }
+        return input.charAt(end) == '\'' ? end + 1 : -1;
+    }
+
+    private int stringLiteral(int index) {
+        int end = index + 1;
+        while (true) {
+            int escapeEnd = escape(end);
+            if (escapeEnd >= 0) {
+                end = escapeEnd;
+            } else if (end < length && !isOneOf(input.charAt(end), "\r\n\"\\")) {
+                end++;
+            } else {
+                break;
+            }
+        }
+        return input.charAt(end) == '"' && end < length ? end + 1 : -1;
+    }
+
+    private int escape(int index) {
+        if (input.charAt(index) != '\\') return -1;
+        char c = input.charAt(index + 1);
+        if (isOneOf(c, "btnfr\"'\\")) return index + 2;
+        if (isOctalDigit(c)) {
+            // [0-3][0-7][0-7] / [0-7][0-7] / [0-7]
+            if (c <= '3' && isOctalDigit(input.charAt(index + 2)) && isOctalDigit(input.charAt(index + 3))) {
+                return index + 4;
+            }
+            return isOctalDigit(input.charAt(index + 2)) ? index + 3 : index + 2;
+        }
+        if (c != 'u') return -1;
+        int start = index + 2;
+        while (input.charAt(start) == 'u') start++;
+        int end = hexDigits(start);
+        return end >= start + 4 ? start + 4 : -1;
+    }
+
+    private int digits(int index) {
+        while (isDigit(input.charAt(index))) index++;
+        return index;
+    }
+
+    private int hexDigits(int index) {
+        while (isHexDigit(input.charAt(index))) index++;
+        return index;
+    }
+
+    private int optional(int index, String characters) {
+        return index < length && isOneOf(input.charAt(index), characters) ? index + 1 : index;
+    }
+
+    private static boolean isOneOf(char c, String characters) {
+        return characters.indexOf(c) >= 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return '0' <= c && c <= '9';
+    }
+
+    private static boolean isOctalDigit(char c) {
+        return '0' <= c && c <= '7';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return '0' <= c && c <= '9' || 'a' <= c && c <= 'f' || 'A' <= c && c <= 'F';
+    }
+}
@@ -0,0 +1,79 @@
+package org.parboiled.examples.java;
+
+/**
+ * A histogram of durations, in nanoseconds
+ *
+ * <p>Values are recorded into log-linear buckets: values below 128 have a
+ * bucket of their own, and above that, every power of two range is split into
+ * 64 buckets. Percentiles are therefore reported with a relative error of at
+ * most 1/64, whatever the range of recorded values, for a fixed memory cost
+ * of a few thousand counters.</p>
+ *
+ * <p>Instances of this class are not thread safe; histograms filled by
+ * separate threads can be combined using {@link #merge(LatencyHistogram)}.
+ * </p>
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (64 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long maxValue;
+
+    void record(long nanos) {
+        long value = Math.max(nanos, 0L);
+        counts[indexOf(value)]++;
+        totalCount++;
+        if (value > maxValue) maxValue = value;
+    }
+
+    void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        if (other.maxValue > maxValue) maxValue = other.maxValue;
+    }
+
+    long getTotalCount() {
+        return totalCount;
+    }
+
+    long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the smallest recorded value (up to the bucket precision) which is greater than or equal to the given
+     * percentage of all recorded values, or 0 if nothing was recorded
+     */
+    long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) return 0L;
+        long countAtPercentile = Math.max((long) Math.ceil(percentile / 100.0 * totalCount), 1L);
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts[i];
+            if (count >= countAtPercentile) return Math.min(highestValueAt(i), maxValue);
+        }
+        return maxValue;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) return (int) value;
+        // the number of low bits to drop for value to fit in [SUB_BUCKET_HALF, SUB_BUCKET_COUNT)
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (int) (value >>> shift) - SUB_BUCKET_HALF;
+    }
+
+    private static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) return index;
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -18,6 +18,10 @@ package org.parboiled.examples.java;
 
 import org.parboiled.Parboiled;
 import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.examples.CompactParseTree;
+import org.parboiled.examples.CompactTreeParseRunner;
+import org.parboiled.examples.ParserClassCache;
 import org.parboiled.parserunners.ReportingParseRunner;
 import org.parboiled.support.ParsingResult;
 
@@ -34,13 +38,90 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.parboiled.common.Preconditions.checkArgNotNull;
 import static org.parboiled.errors.ErrorUtils.printParseErrors;
 
+/**
+ * Performance test of the Java parser over all Java sources of a directory
+ *
+ * <p>Arguments are {@code [-tree | -compactTree] [-translateEscapes | -tokens] [-slowest <n>] [-warmup <n>]
+ * [-iterations <n> [-cv <percent>]] [-cache <file> [-cacheSize <n>]] [-threads <n>] [-pipeline <depth> [-readers <n>]]
+ * [<directory>]}; the directory defaults to the current directory. Parse trees are not built unless {@code -tree} is
+ * given, or {@code -compactTree} to build {@link CompactParseTree}s instead. The report lists the {@code -slowest}
+ * files to parse (10 by default). With {@code -translateEscapes}, unicode escapes are translated before parsing, as
+ * part of the parse time, and files are parsed with a {@link TranslatedJavaParser}.
+ * With {@code -tokens}, unicode escapes are translated as well, then files are split into tokens by a {@link
+ * JavaTokenizer}, again as part of the parse time, and the tokens are parsed with a {@link TokenJavaParser}.</p>
+ *
+ * <p>With {@code -cache}, the outcome of each parse is stored in the given file, keyed by the hash of the file
+ * contents, and files already in there are not parsed again in later runs, unless the grammar has changed since.
+ * Outcomes are only written at the end of the run, so that warmup and measured iterations all parse the same files. At
+ * most {@code -cacheSize} (100000 by default) outcomes are kept, the least recently used ones going first.</p>
+ *
+ * <p>The whole set of files is parsed {@code -warmup} times (none by default) before being parsed {@code -iterations}
+ * times (once by default) for measurement. With several measured iterations, steady state is considered reached
+ * when the coefficient of variation of the throughput over the last three iterations falls below {@code -cv}
+ * percent (2 by default).</p>
+ *
+ * <p>With more than one thread, files are parsed in parallel, each thread using its own parser instance; a thread
+ * count of 0 means one thread per available processor. Parser instances are taken from a {@link JavaParserPool}
+ * filled before parsing starts, so that their construction is neither timed nor repeated across iterations. With
+ * {@code -pipeline}, reading and parsing overlap: reader threads (one by default) decode files ahead of the parser
+ * threads, at most {@code depth} files ahead.</p>
+ */
 public class Main {
 
+    private static final int STEADY_STATE_WINDOW = 3;
+
+    // the classes whose bytecode defines the grammar, for the parse and parser class caches to detect changes to it
+    static final Class<?>[] GRAMMAR_CLASSES = {
+        JavaParser.class, AbstractJavaCharacterMatcher.class, JavaLetterMatcher.class, JavaLetterOrDigitMatcher.class,
+        JavaSpacingMatcher.class, JavaKeywordMatcher.class, BinaryExpressionMatcher.class
+    };
+    private static final Class<?>[] TRANSLATED_GRAMMAR_CLASSES = {
+        JavaParser.class, AbstractJavaCharacterMatcher.class, JavaLetterMatcher.class, JavaLetterOrDigitMatcher.class,
+        JavaSpacingMatcher.class, JavaKeywordMatcher.class, BinaryExpressionMatcher.class, TranslatedJavaParser.class,
+        UnicodeEscapeInputBuffer.class
+    };
+    private static final Class<?>[] TOKEN_GRAMMAR_CLASSES = {
+        JavaParser.class, JavaSpacingMatcher.class, BinaryExpressionMatcher.class, TokenJavaParser.class,
+        JavaTokenizer.class, JavaTokenBuffer.class, UnicodeEscapeInputBuffer.class
+    };
+
+    private boolean buildParseTree;
+    private boolean compactTree;
+    private boolean translateEscapes;
+    private boolean tokens;
+    private int slowestFileCount = 10;
+    private int threads = 1;
+    private int pipelineDepth;
+    private int readers = 1;
+    private ParseCache cache;
+    private JavaParserPool pool;
+    /*
+     * one compact tree runner per root rule, that is per parser of the pool, since creating one copies the rule: a
+     * root rule is only used by the thread which borrowed its parser, and so is its runner; guarded by itself
+     */
+    private final Map<Rule, CompactTreeParseRunner<Object>> compactTreeRunners
+        = new IdentityHashMap<Rule, CompactTreeParseRunner<Object>>();
+
     public static void main(String[] args) {
         new Main().run(args);
     }
@@ -52,7 +133,7 @@ public class Main {
 
         System.out.print("Creating parser... :");
         long start = System.currentTimeMillis();
-        Parboiled.createParser(JavaParser.class);
+        ParserClassCache.createParser(JavaParser.class);
         time(start);
 
         System.out.print("Creating 100 more parser instances... :");
@@ -70,48 +151,510 @@ public class Main {
         }
         time(start);
 
+        File baseDir = null;
+        int warmupIterations = 0;
+        int iterations = 1;
+        double cvThreshold = 2.0;
+        File cacheFile = null;
+        int cacheSize = 100000;
+        for (int i = 0; i < args.length; i++) {
+            if ("-tree".equals(args[i])) {
+                buildParseTree = true;
+            } else if ("-compactTree".equals(args[i])) {
+                compactTree = true;
+            } else if ("-translateEscapes".equals(args[i])) {
+                translateEscapes = true;
+            } else if ("-tokens".equals(args[i])) {
+                tokens = true;
+            } else if ("-slowest".equals(args[i]) && i + 1 < args.length) {
+                slowestFileCount = Math.max(Integer.parseInt(args[++i]), 0);
+            } else if ("-warmup".equals(args[i]) && i + 1 < args.length) {
+                warmupIterations = Math.max(Integer.parseInt(args[++i]), 0);
+            } else if ("-iterations".equals(args[i]) && i + 1 < args.length) {
+                iterations = Math.max(Integer.parseInt(args[++i]), 1);
+            } else if ("-cv".equals(args[i]) && i + 1 < args.length) {
+                cvThreshold = Double.parseDouble(args[++i]);
+            } else if ("-cache".equals(args[i]) && i + 1 < args.length) {
+                cacheFile = new File(args[++i]);
+            } else if ("-cacheSize".equals(args[i]) && i + 1 < args.length) {
+                cacheSize = Math.max(Integer.parseInt(args[++i]), 1);
+            } else if ("-threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("-pipeline".equals(args[i]) && i + 1 < args.length) {
+                pipelineDepth = Integer.parseInt(args[++i]);
+            } else if ("-readers".equals(args[i]) && i + 1 < args.length) {
+                readers = Math.max(Integer.parseInt(args[++i]), 1);
+            } else {
+                baseDir = new File(args[i]);
+            }
+        }
+        if (threads < 1) threads = Runtime.getRuntime().availableProcessors();
+
+        // parser instances are built up front and reused across iterations
+        System.out.printf("Filling a pool of %d parser instances", threads);
+        start = System.currentTimeMillis();
+        // unless asked otherwise, we want to see the parse-tree-less performance
+        pool = new JavaParserPool(tokens ? TokenJavaParser.class : translateEscapes ? TranslatedJavaParser.class
+            : JavaParser.class, buildParseTree, threads, threads, 1, TimeUnit.HOURS);
+        time(start);
+
+        if (cacheFile != null) {
+            System.out.printf("Loading parse cache from '%s'", cacheFile);
+            start = System.currentTimeMillis();
+            try {
+                cache = ParseCache.load(cacheFile, cacheSize, tokens ? TOKEN_GRAMMAR_CLASSES
+                    : translateEscapes ? TRANSLATED_GRAMMAR_CLASSES : GRAMMAR_CLASSES);
+            } catch (IOException e) {
+                System.out.printf("\nCould not load parse cache '%s':\n%s", cacheFile, e);
+                System.exit(1);
+            }
+            time(start);
+        }
+
         start = System.currentTimeMillis();
-        File baseDir = args.length == 1 ? new File(args[0]) : null;
         if (baseDir == null || !baseDir.exists()) baseDir = new File(".");
         System.out.printf("Retrieving file list from '%s'", baseDir);
         List<File> sources = recursiveGetAllJavaSources(baseDir, new ArrayList<File>());
         time(start);
 
-        System.out.printf("Parsing all %s given java sources", sources.size());
-        Rule rootRule = parser.compilationUnit().suppressNode(); // we want to see the parse-tree-less performance
-        start = System.currentTimeMillis();
-        long lines = 0, characters = 0;
+        for (int i = 1; i <= warmupIterations; i++) {
+            System.out.printf("Warmup iteration %d/%d: ", i, warmupIterations);
+            parseAll(sources, new CorpusStatistics(0));
+        }
+
+        CorpusStatistics statistics = new CorpusStatistics(slowestFileCount);
+        double[] throughputs = new double[iterations];
+        GcActivity gcBefore = GcActivity.now();
+        long time = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (iterations > 1) System.out.printf("Iteration %d/%d: ", i + 1, iterations);
+            CorpusStatistics iterationStatistics = new CorpusStatistics(slowestFileCount);
+            long iterationTime = Math.max(parseAll(sources, iterationStatistics), 1);
+            throughputs[i] = iterationStatistics.getCharacters() * 1000.0 / iterationTime;
+            statistics.merge(iterationStatistics);
+            time += iterationTime;
+        }
+        GcActivity gcActivity = GcActivity.now().since(gcBefore);
+
+        if (iterations > 1) printIterations(throughputs, cvThreshold);
+        printReport(statistics, time, gcActivity);
+
+        System.out.println("Parser pool:");
+        System.out.print(pool.printStatistics());
+
+        if (cache != null) {
+            System.out.println("Parse cache (cached files are not included in the figures above):");
+            System.out.print(cache.printStatistics());
+            try {
+                cache.save();
+            } catch (IOException e) {
+                System.out.printf("Could not save parse cache '%s':\n%s\n", cacheFile, e);
+            }
+        }
+    }
+
+    private long parseAll(List<File> sources, CorpusStatistics statistics) {
+        if (pipelineDepth > 0) {
+            System.out.printf("Parsing all %s given java sources using a %d files deep pipeline, %d reader and %d " +
+                "parser threads", sources.size(), pipelineDepth, readers, threads);
+            return parsePipelined(sources, pipelineDepth, readers, threads, statistics);
+        }
+        if (threads == 1) {
+            System.out.printf("Parsing all %s given java sources", sources.size());
+            return parseSequentially(sources, statistics);
+        }
+        System.out.printf("Parsing all %s given java sources using %d threads", sources.size(), threads);
+        return parseInParallel(sources, threads, statistics);
+    }
+
+    private static void printIterations(double[] throughputs, double cvThreshold) {
+        System.out.println("Throughput per iteration:");
+        int steadyIteration = -1;
+        for (int i = 0; i < throughputs.length; i++) {
+            System.out.printf("    %4d -> %10.0f Chars/sec", i + 1, throughputs[i]);
+            if (i + 1 >= STEADY_STATE_WINDOW) {
+                double cv = coefficientOfVariation(throughputs, i + 1 - STEADY_STATE_WINDOW, i + 1);
+                System.out.printf(" (CV over last %d: %5.2f%%)", STEADY_STATE_WINDOW, cv);
+                if (steadyIteration < 0 && cv <= cvThreshold) steadyIteration = i + 1;
+            }
+            System.out.println();
+        }
+        double cv = coefficientOfVariation(throughputs, 0, throughputs.length);
+        System.out.printf("    mean %10.0f Chars/sec, CV %5.2f%%\n", mean(throughputs, 0, throughputs.length), cv);
+        if (steadyIteration > 0) {
+            System.out.printf("    steady state (CV <= %s%%) reached at iteration %d\n", cvThreshold,
+                steadyIteration);
+        } else {
+            System.out.printf("    steady state (CV <= %s%%) not reached\n", cvThreshold);
+        }
+    }
+
+    // of values[from] to values[to - 1], in percent of their mean
+    private static double coefficientOfVariation(double[] values, int from, int to) {
+        double mean = mean(values, from, to);
+        double sumOfSquares = 0.0;
+        for (int i = from; i < to; i++) {
+            sumOfSquares += (values[i] - mean) * (values[i] - mean);
+        }
+        return mean == 0.0 ? 0.0 : Math.sqrt(sumOfSquares / (to - from)) * 100.0 / mean;
+    }
+
+    private static double mean(double[] values, int from, int to) {
+        double sum = 0.0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum / (to - from);
+    }
+
+    private void printReport(CorpusStatistics statistics, long time, GcActivity gcActivity) {
+        System.out.println("Parsing performance:");
+        System.out.printf("    %6d Files -> %6.2f Files/sec\n", statistics.getFiles(),
+            statistics.getFiles() * 1000.0 / time);
+        System.out.printf("    %6d Lines -> %6d Lines/sec\n", statistics.getLines(),
+            statistics.getLines() * 1000 / time);
+        System.out.printf("    %6d Chars -> %6d Chars/sec\n", statistics.getCharacters(),
+            statistics.getCharacters() * 1000 / time);
+
+        System.out.printf("Memory (parse tree %s):\n", compactTree ? "built compact" : buildParseTree ? "built"
+            : "suppressed");
+        if (AllocationMeter.isSupported() && statistics.getFiles() > 0) {
+            System.out.printf("    %12d bytes allocated -> %10d bytes/file, %8.2f bytes/char\n",
+                statistics.getAllocatedBytes(), statistics.getAllocatedBytes() / statistics.getFiles(),
+                (double) statistics.getAllocatedBytes() / Math.max(statistics.getCharacters(), 1));
+            System.out.printf("    %12d bytes allocated at most, by file '%s'\n",
+                statistics.getMaxAllocatedBytes(), statistics.getMaxAllocatingFile());
+        } else {
+            System.out.println("    allocated bytes not available on this JVM");
+        }
+        System.out.printf("    %6d collections, %6d ms in total\n", gcActivity.getTotalCount(),
+            gcActivity.getTotalTime());
+        System.out.print(gcActivity.print());
+
+        LatencyHistogram parseTimes = statistics.getParseTimes();
+        System.out.println("Parse time per file:");
+        for (double percentile : new double[] { 50.0, 90.0, 99.0, 99.9 }) {
+            System.out.printf("    %5s%% -> %10.3f ms\n", percentile, parseTimes.getValueAtPercentile(percentile) / 1e6);
+        }
+        System.out.printf("    %6s -> %10.3f ms\n", "max", parseTimes.getMaxValue() / 1e6);
+
+        List<SlowestFiles.Entry> slowest = statistics.getSlowestFiles().getEntries();
+        if (!slowest.isEmpty()) {
+            System.out.printf("%d slowest files:\n", slowest.size());
+            for (SlowestFiles.Entry entry : slowest) {
+                System.out.printf("    %10.3f ms %8d chars %10.2f chars/ms  %s\n", entry.nanos / 1e6,
+                    entry.characters, entry.characters * 1e6 / Math.max(entry.nanos, 1L), entry.file);
+            }
+        }
+    }
+
+    /*
+     * Files are decoded straight into a reused buffer, which is cheap enough for the reading time to be counted in
+     * the total; it is however also reported separately.
+     */
+    @SuppressWarnings({"ConstantConditions"})
+    private long parseSequentially(List<File> sources, CorpusStatistics statistics) {
+        JavaParserPool.Lease lease = null;
+        try {
+            lease = pool.borrow();
+        } catch (InterruptedException e) {
+            System.out.print("\nInterrupted while waiting for a parser");
+            System.exit(1);
+        }
+        Rule rootRule = lease.getRootRule();
+        MappedFileInputBuffer.Decoder decoder = new MappedFileInputBuffer.Decoder();
+        long readTime = 0;
+        long start = System.currentTimeMillis();
         for (File sourceFile : sources) {
-            long dontCountStart = System.currentTimeMillis();
-            String sourceText = readAllText(sourceFile);
-            start += System.currentTimeMillis() - dontCountStart; // do not count the time for reading the text file
+            long readStart = System.currentTimeMillis();
+            MappedFileInputBuffer input = null;
+            try {
+                input = decoder.decode(sourceFile);
+            } catch (IOException e) {
+                System.out.printf("\nCould not read file '%s':\n%s", sourceFile, e);
+                System.exit(1);
+            }
+            readTime += System.currentTimeMillis() - readStart;
 
-            ParsingResult<?> result = null;
+            String errors = null;
             try {
-                result = run(rootRule, sourceText);
+                errors = parse(rootRule, sourceFile, input, statistics);
             } catch (Exception e) {
                 System.out.printf("\nException while parsing file '%s':\n%s", sourceFile, e);
                 System.exit(1);
             }
-            if (!result.matched) {
-                System.out.printf("\nParse error(s) in file '%s':\n%s", sourceFile, printParseErrors(result));
+            if (errors != null) {
+                System.out.printf("\nParse error(s) in file '%s':\n%s", sourceFile, errors);
                 System.exit(1);
             } else {
                 System.out.print('.');
             }
-            lines += result.inputBuffer.getLineCount();
-            characters += sourceText.length();
         }
+        pool.release(lease);
         long time = time(start);
+        System.out.printf("    (%s ms of which spent reading files)\n", readTime);
+        return time;
+    }
 
-        System.out.println("Parsing performance:");
-        System.out.printf("    %6d Files -> %6.2f Files/sec\n", sources.size(), sources.size() * 1000.0 / time);
-        System.out.printf("    %6d Lines -> %6d Lines/sec\n", lines, lines * 1000 / time);
-        System.out.printf("    %6d Chars -> %6d Chars/sec\n", characters, characters * 1000 / time);
+    /*
+     * Each worker borrows its own parser instance from the pool and takes the next file to parse from the shared list
+     * until the list is exhausted or any of the workers fails. Since files are read by the workers themselves, the
+     * time reported here is the wall clock time, reading included.
+     */
+    private long parseInParallel(final List<File> sources, int threads, CorpusStatistics statistics) {
+        final AtomicInteger nextFile = new AtomicInteger();
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<CorpusStatistics>> workers = new ArrayList<Future<CorpusStatistics>>(threads);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(new Callable<CorpusStatistics>() {
+                public CorpusStatistics call() throws InterruptedException {
+                    CorpusStatistics workerStatistics = new CorpusStatistics(slowestFileCount);
+                    JavaParserPool.Lease lease = pool.borrow();
+                    try {
+                        parseFiles(lease.getRootRule(), workerStatistics);
+                    } finally {
+                        pool.release(lease);
+                    }
+                    return workerStatistics;
+                }
+
+                private void parseFiles(Rule rootRule, CorpusStatistics workerStatistics) {
+                    MappedFileInputBuffer.Decoder decoder = new MappedFileInputBuffer.Decoder();
+                    int index;
+                    while (failure.get() == null && (index = nextFile.getAndIncrement()) < sources.size()) {
+                        File sourceFile = sources.get(index);
+                        MappedFileInputBuffer input;
+                        String errors;
+                        try {
+                            input = decoder.decode(sourceFile);
+                        } catch (IOException e) {
+                            failure.compareAndSet(null, String.format("Could not read file '%s':\n%s",
+                                sourceFile, e));
+                            break;
+                        }
+                        try {
+                            errors = parse(rootRule, sourceFile, input, workerStatistics);
+                        } catch (Exception e) {
+                            failure.compareAndSet(null, String.format("Exception while parsing file '%s':\n%s",
+                                sourceFile, e));
+                            break;
+                        }
+                        if (errors != null) {
+                            failure.compareAndSet(null, String.format("Parse error(s) in file '%s':\n%s",
+                                sourceFile, errors));
+                            break;
+                        }
+                        System.out.print('.');
+                    }
+                }
+            }));
+        }
+
+        try {
+            for (Future<CorpusStatistics> worker : workers) {
+                statistics.merge(worker.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, "Interrupted while waiting for parser threads");
+        } catch (ExecutionException e) {
+            failure.compareAndSet(null, "Parser thread failure:\n" + e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            System.out.printf("\n%s", failure.get());
+            System.exit(1);
+        }
+        return time(start);
     }
 
-    protected ParsingResult<?> run(Rule rootRule, String sourceText) {
-        return new ReportingParseRunner(rootRule).run(sourceText);
+    /*
+     * Reader threads decode files into a fixed number of prefetch slots, each with its own decoder, and hand them
+     * over to the parser threads, which give them back once the file is parsed; the number of slots therefore bounds
+     * how far ahead reading can go. The time each stage spends working and waiting is reported separately.
+     */
+    private long parsePipelined(final List<File> sources, int depth, int readers, int parsers,
+                                CorpusStatistics statistics) {
+        final AtomicInteger nextFile = new AtomicInteger();
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final AtomicInteger activeReaders = new AtomicInteger(readers);
+        final AtomicLong readTime = new AtomicLong();
+        final AtomicLong readerWaitTime = new AtomicLong();
+        final AtomicLong parseTime = new AtomicLong();
+        final AtomicLong parserWaitTime = new AtomicLong();
+        final BlockingQueue<PrefetchSlot> free = new ArrayBlockingQueue<PrefetchSlot>(depth);
+        // holds at most all slots plus one end marker per parser, so offering to it never fails
+        final BlockingQueue<PrefetchSlot> ready = new ArrayBlockingQueue<PrefetchSlot>(depth + parsers);
+        for (int i = 0; i < depth; i++) {
+            free.add(new PrefetchSlot());
+        }
+        final int parserCount = parsers;
+
+        ExecutorService executor = Executors.newFixedThreadPool(readers + parsers);
+        CompletionService<CorpusStatistics> stages = new ExecutorCompletionService<CorpusStatistics>(executor);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < readers; i++) {
+            stages.submit(new Callable<CorpusStatistics>() {
+                public CorpusStatistics call() {
+                    try {
+                        int index;
+                        while (failure.get() == null && (index = nextFile.getAndIncrement()) < sources.size()) {
+                            long waitStart = System.nanoTime();
+                            PrefetchSlot slot = free.take();
+                            long readStart = System.nanoTime();
+                            readerWaitTime.addAndGet(readStart - waitStart);
+                            slot.file = sources.get(index);
+                            try {
+                                slot.input = slot.decoder.decode(slot.file);
+                            } catch (IOException e) {
+                                failure.compareAndSet(null, String.format("Could not read file '%s':\n%s",
+                                    slot.file, e));
+                                break;
+                            }
+                            readTime.addAndGet(System.nanoTime() - readStart);
+                            ready.offer(slot);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        if (activeReaders.decrementAndGet() == 0) {
+                            for (int n = 0; n < parserCount; n++) ready.offer(PrefetchSlot.END);
+                        }
+                    }
+                    return new CorpusStatistics(0);
+                }
+            });
+        }
+        for (int i = 0; i < parsers; i++) {
+            stages.submit(new Callable<CorpusStatistics>() {
+                public CorpusStatistics call() {
+                    CorpusStatistics parserStatistics = new CorpusStatistics(slowestFileCount);
+                    JavaParserPool.Lease lease = null;
+                    try {
+                        lease = pool.borrow();
+                        Rule rootRule = lease.getRootRule();
+                        while (failure.get() == null) {
+                            long waitStart = System.nanoTime();
+                            PrefetchSlot slot = ready.take();
+                            long parseStart = System.nanoTime();
+                            parserWaitTime.addAndGet(parseStart - waitStart);
+                            if (slot == PrefetchSlot.END) break;
+
+                            String errors;
+                            try {
+                                errors = parse(rootRule, slot.file, slot.input, parserStatistics);
+                            } catch (Exception e) {
+                                failure.compareAndSet(null, String.format("Exception while parsing file '%s':\n%s",
+                                    slot.file, e));
+                                break;
+                            }
+                            if (errors != null) {
+                                failure.compareAndSet(null, String.format("Parse error(s) in file '%s':\n%s",
+                                    slot.file, errors));
+                                break;
+                            }
+                            System.out.print('.');
+                            parseTime.addAndGet(System.nanoTime() - parseStart);
+                            free.offer(slot);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        if (lease != null) pool.release(lease);
+                    }
+                    return parserStatistics;
+                }
+            });
+        }
+
+        // as soon as any stage has failed, the others are interrupted
+        try {
+            for (int i = 0; i < readers + parsers && failure.get() == null; i++) {
+                statistics.merge(stages.take().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, "Interrupted while waiting for pipeline threads");
+        } catch (ExecutionException e) {
+            failure.compareAndSet(null, "Pipeline thread failure:\n" + e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            System.out.printf("\n%s", failure.get());
+            System.exit(1);
+        }
+        long time = time(start);
+        System.out.printf("    reading: %6d ms busy, %6d ms blocked by a full pipeline (%d threads)\n",
+            readTime.get() / 1000000, readerWaitTime.get() / 1000000, readers);
+        System.out.printf("    parsing: %6d ms busy, %6d ms waiting for input (%d threads)\n",
+            parseTime.get() / 1000000, parserWaitTime.get() / 1000000, parsers);
+        return time;
+    }
+
+    private static final class PrefetchSlot {
+        static final PrefetchSlot END = new PrefetchSlot();
+
+        final MappedFileInputBuffer.Decoder decoder = new MappedFileInputBuffer.Decoder();
+        File file;
+        MappedFileInputBuffer input;
+    }
+
+    /*
+     * Parses a file, adding it to the given statistics if it matched, and returns its parse errors or null if it
+     * matched. Files found in the cache are not parsed again, and are not added to the statistics either.
+     */
+    private String parse(Rule rootRule, File sourceFile, MappedFileInputBuffer input, CorpusStatistics statistics) {
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = ParseCache.keyOf(input);
+            ParseCache.Entry entry = cache.get(cacheKey);
+            if (entry != null) return entry.errors;
+        }
+
+        long allocatedBytes = AllocationMeter.allocatedBytes();
+        long start = System.nanoTime();
+        // tokenizing is part of the parse time
+        ParsingResult<?> result;
+        if (tokens) {
+            result = run(rootRule, JavaTokenizer.tokenize(new UnicodeEscapeInputBuffer(input, input.length())));
+        } else {
+            result = run(rootRule, translateEscapes ? new UnicodeEscapeInputBuffer(input, input.length()) : input);
+        }
+        long nanos = System.nanoTime() - start;
+        allocatedBytes = AllocationMeter.allocatedBytes() - allocatedBytes;
+        int lineCount = result.inputBuffer.getLineCount();
+        String errors = result.matched ? null : printParseErrors(result);
+        if (result.matched) {
+            statistics.addFile(sourceFile, lineCount, input.length(), allocatedBytes, nanos);
+        }
+        if (cache != null) cache.put(cacheKey, new ParseCache.Entry(result.matched, lineCount, errors));
+        return errors;
+    }
+
+    protected ParsingResult<?> run(Rule rootRule, InputBuffer input) {
+        if (compactTree) {
+            ParsingResult<?> result = compactTreeRunnerFor(rootRule).run(input);
+            // parse errors are only located by running again, as the reporting parse runner does anyway
+            if (result.matched) return result;
+        }
+        return new ReportingParseRunner(rootRule).run(input);
+    }
+
+    private CompactTreeParseRunner<Object> compactTreeRunnerFor(Rule rootRule) {
+        synchronized (compactTreeRunners) {
+            CompactTreeParseRunner<Object> runner = compactTreeRunners.get(rootRule);
+            if (runner == null) {
+                runner = new CompactTreeParseRunner<Object>(rootRule);
+                compactTreeRunners.put(rootRule, runner);
+            }
+            return runner;
+        }
     }
 
     private static long time(long start) {
@@ -126,7 +669,7 @@ public class Main {
         }
     };
 
-    private static List<File> recursiveGetAllJavaSources(File file, ArrayList<File> list) {
+    static List<File> recursiveGetAllJavaSources(File file, ArrayList<File> list) {
         if (file.isDirectory()) {
             for (File f : file.listFiles(fileFilter)) {
                 recursiveGetAllJavaSources(f, list);
@@ -0,0 +1,198 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.support.Chars;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.Position;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * An {@link InputBuffer} over the decoded contents of a file
+ *
+ * <p>Instances are obtained from a {@link Decoder}, which maps the file into
+ * memory and decodes it in one pass into a character buffer it reuses from
+ * one file to the next. Contrary to {@link Main#readAllText(File)}, no
+ * intermediate copies of the text are made, and none is made either when
+ * handing this buffer to a parse runner.</p>
+ *
+ * <p>As a consequence, a buffer is only valid until the next call to {@link
+ * Decoder#decode(File)} on the decoder which created it.</p>
+ */
+public final class MappedFileInputBuffer implements InputBuffer {
+
+    private final char[] buffer;
+    private final int length;
+    private int[] newlines;
+
+    private MappedFileInputBuffer(char[] buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
+    }
+
+    /**
+     * @return the number of characters in this buffer
+     */
+    public int length() {
+        return length;
+    }
+
+    public char charAt(int index) {
+        return 0 <= index && index < length ? buffer[index] : Chars.EOI;
+    }
+
+    public boolean test(int index, char[] characters) {
+        int len = characters.length;
+        if (index < 0 || index > length - len) return false;
+        for (int i = 0; i < len; i++) {
+            if (buffer[index + i] != characters[i]) return false;
+        }
+        return true;
+    }
+
+    public String extract(int start, int end) {
+        if (start < 0) start = 0;
+        if (end >= length) end = length;
+        if (end <= start) return "";
+        return new String(buffer, start, end - start);
+    }
+
+    public String extract(IndexRange range) {
+        return extract(range.start, range.end);
+    }
+
+    public Position getPosition(int index) {
+        buildNewlines();
+        int line = getLine0(index);
+        int column = index - (line > 0 ? newlines[line - 1] : -1);
+        return new Position(line + 1, column);
+    }
+
+    public int getOriginalIndex(int index) {
+        return index;
+    }
+
+    public String extractLine(int lineNumber) {
+        buildNewlines();
+        checkArgument(0 < lineNumber && lineNumber <= newlines.length + 1);
+        int start = lineNumber > 1 ? newlines[lineNumber - 2] + 1 : 0;
+        int end = lineNumber <= newlines.length ? newlines[lineNumber - 1] : length;
+        if (charAt(end - 1) == '\r') end--;
+        return extract(start, end);
+    }
+
+    public int getLineCount() {
+        buildNewlines();
+        return newlines.length + 1;
+    }
+
+    // returns the zero based input line number the character with the given index is found in
+    private int getLine0(int index) {
+        int j = Arrays.binarySearch(newlines, index);
+        return j >= 0 ? j : -(j + 1);
+    }
+
+    private void buildNewlines() {
+        if (newlines != null) return;
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] == '\n') count++;
+        }
+        int[] lines = new int[count];
+        count = 0;
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] == '\n') lines[count++] = i;
+        }
+        newlines = lines;
+    }
+
+    /**
+     * Decodes files into {@link MappedFileInputBuffer}s
+     *
+     * <p>Files are memory mapped, except small ones which are simply read
+     * into a reused byte buffer, since mapping costs more than reading them.
+     * </p>
+     *
+     * <p>A decoder is not thread safe; use one per thread.</p>
+     */
+    public static final class Decoder {
+
+        private static final int MAPPING_THRESHOLD = 64 * 1024;
+
+        private final CharsetDecoder decoder;
+        private final ByteBuffer bytes = ByteBuffer.allocate(MAPPING_THRESHOLD);
+        private CharBuffer chars = CharBuffer.allocate(MAPPING_THRESHOLD);
+
+        public Decoder() {
+            this(Charset.forName("UTF8"));
+        }
+
+        public Decoder(Charset charset) {
+            checkArgNotNull(charset, "charset");
+            // same behaviour as the InputStreamReader used by Main.readAllText()
+            decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        /**
+         * Decode a file
+         *
+         * <p>The returned buffer is invalidated by the next call to this
+         * method.</p>
+         *
+         * @param file the file to decode
+         * @return an input buffer over the file contents
+         * @throws IOException the file cannot be read
+         */
+        public MappedFileInputBuffer decode(File file) throws IOException {
+            checkArgNotNull(file, "file");
+            FileInputStream stream = new FileInputStream(file);
+            try {
+                FileChannel channel = stream.getChannel();
+                long size = channel.size();
+                checkArgument(size <= Integer.MAX_VALUE, "file too large");
+                ByteBuffer in;
+                if (size < MAPPING_THRESHOLD) {
+                    bytes.clear();
+                    while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                        // read until the buffer is full or the end of the file is reached
+                    }
+                    bytes.flip();
+                    in = bytes;
+                } else {
+                    in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+                return decode(in);
+            } finally {
+                stream.close();
+            }
+        }
+
+        private MappedFileInputBuffer decode(ByteBuffer in) throws CharacterCodingException {
+            int capacity = (int) Math.ceil(in.remaining() * (double) decoder.maxCharsPerByte());
+            if (chars.capacity() < capacity) chars = CharBuffer.allocate(capacity);
+            chars.clear();
+            decoder.reset();
+            CoderResult result = decoder.decode(in, chars, true);
+            if (!result.isUnderflow()) result.throwException();
+            result = decoder.flush(chars);
+            if (!result.isUnderflow()) result.throwException();
+            return new MappedFileInputBuffer(chars.array(), chars.position());
+        }
+    }
+}
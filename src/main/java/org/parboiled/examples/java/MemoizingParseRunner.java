@@ -0,0 +1,428 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.Rule;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.matchers.Matcher;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.support.ParsingResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * A parse runner memoizing the outcome of rules, as configured at runtime
+ *
+ * <p>Each rule, known by its label, is memoized in one of the {@link Mode}s,
+ * independently of any {@code @MemoMismatches} annotation of the grammar,
+ * whose own memoization still applies underneath. Outcomes are kept in a
+ * single table with a fixed number of entries, allocated once: an entry is
+ * found from the rule and input index, and a new outcome evicts whatever
+ * entry it maps to, so that memory use does not grow with the input. The
+ * table is emptied at the start of each run.</p>
+ *
+ * <p>For each memoized rule, the runner reports the hit rate of its lookups,
+ * the memory taken by its entries at most, and an estimate of the time saved
+ * by its hits: each hit counts for the average time the rule took to reach
+ * the same outcome when actually run.</p>
+ *
+ * <p>A hit on a memoized match skips the rule altogether, parse tree nodes
+ * and actions included; matches are therefore only memoized and reused where
+ * parse tree nodes are suppressed, and should only be memoized for rules
+ * without actions.</p>
+ *
+ * <p>Rules in {@link Mode#ADAPTIVE} mode are observed over a number of warmup
+ * runs: each invocation of such a rule at an index where it already ran
+ * during the same run is a revisit, which memoization would have saved. At
+ * the end of the warmup, each of these rules is memoized in full if its
+ * matches are revisited at least at a given rate, else only its mismatches
+ * if those are, and not at all otherwise, or if the time memoization would
+ * have saved does not make up for the cost of the lookups. The chosen set is
+ * reported as a policy, see {@link #getAdaptivePolicy()}.</p>
+ */
+public class MemoizingParseRunner<V> extends BasicParseRunner<V> {
+
+    /**
+     * How the outcomes of a rule are memoized
+     */
+    public enum Mode {
+        OFF,
+        // the same as @MemoMismatches
+        MISMATCHES,
+        // packrat parsing: matches are memoized as well
+        FULL,
+        // one of the above, depending on what is observed during the warmup runs
+        ADAPTIVE
+    }
+
+    // a key (8 bytes), an end index (4 bytes) and a generation (4 bytes)
+    private static final int ENTRY_BYTES = 16;
+    // a rough estimate of the cost of a memo table lookup, for adaptive memoization to weigh against time saved
+    private static final long LOOKUP_NANOS = 20;
+
+    /**
+     * Memoization figures of a single rule, over all runs
+     */
+    public static final class RuleStatistics {
+        private final String label;
+        private final boolean adaptive;
+        private Mode mode;
+        // the upper half of the keys of the entries of this rule, the lower half being the input index
+        private final int id;
+        private long lookups;
+        private long mismatchHits;
+        private long matchHits;
+        private long matches;
+        private long matchNanos;
+        private long mismatches;
+        private long mismatchNanos;
+        private long stores;
+        private long evictions;
+        private int entries;
+        private int peakEntries;
+        // invocations at an index where the rule had already matched or mismatched, during the warmup runs
+        private long rematches;
+        private long remismatches;
+
+        private RuleStatistics(String label, Mode mode, int id) {
+            this.label = label;
+            this.mode = mode;
+            this.id = id;
+            adaptive = mode == Mode.ADAPTIVE;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return the memoization mode, which for adaptive rules is {@link Mode#ADAPTIVE} until the end of the warmup
+         */
+        public Mode getMode() {
+            return mode;
+        }
+
+        public boolean isAdaptive() {
+            return adaptive;
+        }
+
+        public long getLookups() {
+            return lookups;
+        }
+
+        public long getHits() {
+            return mismatchHits + matchHits;
+        }
+
+        public double getHitRate() {
+            return lookups == 0 ? 0 : (double) getHits() / lookups;
+        }
+
+        /**
+         * @return the number of outcomes stored
+         */
+        public long getStores() {
+            return stores;
+        }
+
+        /**
+         * @return the number of entries of this rule evicted by other outcomes, of this rule or others
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * @return the most memory taken by the entries of this rule during a run, in bytes
+         */
+        public long getPeakMemory() {
+            return (long) peakEntries * ENTRY_BYTES;
+        }
+
+        /**
+         * @return the estimated time saved by hits, in nanoseconds
+         */
+        public long getNanosSaved() {
+            long saved = 0;
+            if (mismatches > 0) saved += mismatchHits * (mismatchNanos / mismatches);
+            if (matches > 0) saved += matchHits * (matchNanos / matches);
+            return saved;
+        }
+
+        /**
+         * @return the time actually spent in the rule, in nanoseconds
+         */
+        public long getNanos() {
+            return matchNanos + mismatchNanos;
+        }
+    }
+
+    private static final Comparator<RuleStatistics> BY_NANOS_SAVED = new Comparator<RuleStatistics>() {
+        public int compare(RuleStatistics a, RuleStatistics b) {
+            long delta = b.getNanosSaved() - a.getNanosSaved();
+            return delta < 0 ? -1 : delta > 0 ? 1 : a.label.compareTo(b.label);
+        }
+    };
+
+    private final Map<String, Mode> modes;
+    private final Mode defaultMode;
+    private final int warmupRuns;
+    private final double minRevisitRate;
+    private int runs;
+    private final Map<Matcher, RuleStatistics> rules = new IdentityHashMap<Matcher, RuleStatistics>();
+    // the statistics of memoized rules, by id - 1
+    private final List<RuleStatistics> memoizedRules = new ArrayList<RuleStatistics>();
+    private final RuleStatistics notMemoized = new RuleStatistics(null, Mode.OFF, 0);
+
+    private final long[] keys;
+    private final int[] ends;
+    private final int[] generations;
+    private final int shift;
+    private int generation;
+
+    /**
+     * @param rule the root rule
+     * @param modes the memoization mode of rules, by label
+     * @param defaultMode the memoization mode of the rules not in {@code modes}
+     * @param capacity the number of entries of the memo table, rounded up to a power of two
+     */
+    public MemoizingParseRunner(Rule rule, Map<String, Mode> modes, Mode defaultMode, int capacity) {
+        this(rule, modes, defaultMode, capacity, 100, 0.1);
+    }
+
+    /**
+     * @param rule the root rule
+     * @param modes the memoization mode of rules, by label
+     * @param defaultMode the memoization mode of the rules not in {@code modes}
+     * @param capacity the number of entries of the memo table, rounded up to a power of two
+     * @param warmupRuns the number of runs adaptive rules are observed over
+     * @param minRevisitRate the share of the matches, or mismatches, of an adaptive rule which must be revisits for
+     * them to be memoized
+     */
+    public MemoizingParseRunner(Rule rule, Map<String, Mode> modes, Mode defaultMode, int capacity, int warmupRuns,
+        double minRevisitRate) {
+        super(rule);
+        checkArgNotNull(modes, "modes");
+        checkArgNotNull(defaultMode, "defaultMode");
+        checkArgument(capacity > 0, "capacity must be positive");
+        checkArgument(warmupRuns > 0, "warmupRuns must be positive");
+        this.modes = new HashMap<String, Mode>(modes);
+        this.defaultMode = defaultMode;
+        this.warmupRuns = warmupRuns;
+        this.minRevisitRate = minRevisitRate;
+        int bits = Math.max(32 - Integer.numberOfLeadingZeros(capacity - 1), 1);
+        keys = new long[1 << bits];
+        ends = new int[1 << bits];
+        generations = new int[1 << bits];
+        shift = 32 - bits;
+    }
+
+    /**
+     * Parses a memoization policy, as a comma separated list of {@code <rule label>=<mode>}, modes being {@code off},
+     * {@code mismatches}, {@code full} or {@code adaptive}; a label of {@code *} sets the default mode, which is
+     * otherwise {@code off}
+     *
+     * @param policy the policy
+     * @param modes the map to put the modes of the rules in
+     * @return the default mode
+     */
+    public static Mode parsePolicy(String policy, Map<String, Mode> modes) {
+        checkArgNotNull(policy, "policy");
+        Mode defaultMode = Mode.OFF;
+        for (String item : policy.split(",")) {
+            if (item.trim().length() == 0) continue;
+            int equals = item.indexOf('=');
+            checkArgument(equals > 0, "not a <rule>=<mode> pair: " + item);
+            String label = item.substring(0, equals).trim();
+            Mode mode = Mode.valueOf(item.substring(equals + 1).trim().toUpperCase());
+            if ("*".equals(label)) {
+                defaultMode = mode;
+            } else {
+                modes.put(label, mode);
+            }
+        }
+        return defaultMode;
+    }
+
+    @Override
+    public ParsingResult<V> run(InputBuffer inputBuffer) {
+        // entries of previous runs are ignored rather than cleared
+        generation++;
+        for (RuleStatistics rule : memoizedRules) rule.entries = 0;
+        if (++runs == warmupRuns + 1) chooseAdaptiveModes();
+        return super.run(inputBuffer);
+    }
+
+    @Override
+    public boolean match(MatcherContext<?> context) {
+        Matcher matcher = context.getMatcher();
+        RuleStatistics rule = rules.get(matcher);
+        if (rule == null) rule = register(matcher);
+        if (rule == notMemoized) return matcher.match(context);
+
+        int start = context.getCurrentIndex();
+        long key = (long) rule.id << 32 | start;
+        int slot = (int) (key ^ key >>> 32) * 0x9E3779B9 >>> shift;
+        if (rule.mode == Mode.ADAPTIVE) return observe(context, matcher, rule, key, slot);
+        rule.lookups++;
+        if (keys[slot] == key && generations[slot] == generation) {
+            int end = ends[slot];
+            if (end < 0) {
+                rule.mismatchHits++;
+                return false;
+            }
+            if (context.isNodeSuppressed()) {
+                rule.matchHits++;
+                context.setCurrentIndex(end);
+                return true;
+            }
+        }
+
+        long nanos = System.nanoTime();
+        boolean matched = matcher.match(context);
+        nanos = System.nanoTime() - nanos;
+        if (matched) {
+            rule.matches++;
+            rule.matchNanos += nanos;
+            if (rule.mode == Mode.FULL && context.isNodeSuppressed()) store(slot, key, rule, context.getCurrentIndex());
+        } else {
+            rule.mismatches++;
+            rule.mismatchNanos += nanos;
+            store(slot, key, rule, -1);
+        }
+        return matched;
+    }
+
+    /**
+     * @return the statistics of the memoized rules, those which saved the most time first
+     */
+    public List<RuleStatistics> getStatistics() {
+        List<RuleStatistics> statistics = new ArrayList<RuleStatistics>(memoizedRules.size());
+        for (RuleStatistics rule : memoizedRules) {
+            if (rule.mode != Mode.OFF) statistics.add(rule);
+        }
+        Collections.sort(statistics, BY_NANOS_SAVED);
+        return statistics;
+    }
+
+    /**
+     * @return the modes chosen for adaptive rules, as a policy (see {@link #parsePolicy(String, Map)}) with the rules
+     * to memoize, or null if the warmup is not over
+     */
+    public String getAdaptivePolicy() {
+        if (runs <= warmupRuns) return null;
+        StringBuilder sb = new StringBuilder();
+        for (RuleStatistics rule : memoizedRules) {
+            if (!rule.adaptive || rule.mode == Mode.OFF) continue;
+            if (sb.length() > 0) sb.append(',');
+            sb.append(rule.label).append('=').append(rule.mode.name().toLowerCase());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the size of the memo table, in bytes
+     */
+    public long getTableMemory() {
+        return (long) keys.length * ENTRY_BYTES;
+    }
+
+    public String printStatistics() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Memo table: %d entries, %.1f KB\n", keys.length, getTableMemory() / 1024.0));
+        sb.append(String.format("    %-10s %12s %8s %12s %12s %12s %12s  %s\n", "mode", "lookups", "hits", "evictions",
+            "peak KB", "spent ms", "saved ms", "rule"));
+        for (RuleStatistics rule : getStatistics()) {
+            sb.append(String.format("    %-10s %12d %7.1f%% %12d %12.1f %12.3f %12.3f  %s\n",
+                rule.mode.name().toLowerCase(), rule.lookups, rule.getHitRate() * 100, rule.evictions,
+                rule.getPeakMemory() / 1024.0, rule.getNanos() / 1e6, rule.getNanosSaved() / 1e6, rule.label));
+        }
+        String policy = getAdaptivePolicy();
+        if (policy != null) sb.append(String.format("Adaptive policy after %d runs: %s\n", warmupRuns, policy));
+        return sb.toString();
+    }
+
+    private RuleStatistics register(Matcher matcher) {
+        String label = matcher.getLabel();
+        Mode mode = modes.containsKey(label) ? modes.get(label) : defaultMode;
+        // no longer observed after the warmup
+        if (mode == Mode.ADAPTIVE && runs > warmupRuns) mode = Mode.OFF;
+        RuleStatistics rule = notMemoized;
+        if (mode != Mode.OFF) {
+            rule = new RuleStatistics(label, mode, memoizedRules.size() + 1);
+            memoizedRules.add(rule);
+        }
+        rules.put(matcher, rule);
+        return rule;
+    }
+
+    // runs an adaptive rule during the warmup, counting revisits; all outcomes are stored, to tell revisits
+    private boolean observe(MatcherContext<?> context, Matcher matcher, RuleStatistics rule, long key, int slot) {
+        if (keys[slot] == key && generations[slot] == generation) {
+            if (ends[slot] < 0) {
+                rule.remismatches++;
+            } else {
+                rule.rematches++;
+            }
+        }
+        long nanos = System.nanoTime();
+        boolean matched = matcher.match(context);
+        nanos = System.nanoTime() - nanos;
+        if (matched) {
+            rule.matches++;
+            rule.matchNanos += nanos;
+        } else {
+            rule.mismatches++;
+            rule.mismatchNanos += nanos;
+        }
+        store(slot, key, rule, matched ? context.getCurrentIndex() : -1);
+        return matched;
+    }
+
+    private void chooseAdaptiveModes() {
+        for (RuleStatistics rule : memoizedRules) {
+            if (rule.mode != Mode.ADAPTIVE) continue;
+            long lookupNanos = (rule.matches + rule.mismatches) * LOOKUP_NANOS;
+            long mismatchNanosSaved = rule.mismatches == 0 ? 0
+                : rule.remismatches * (rule.mismatchNanos / rule.mismatches);
+            long matchNanosSaved = rule.matches == 0 ? 0 : rule.rematches * (rule.matchNanos / rule.matches);
+            if (rule.rematches >= minRevisitRate * rule.matches && rule.rematches > 0
+                && matchNanosSaved + mismatchNanosSaved > lookupNanos) {
+                rule.mode = Mode.FULL;
+            } else if (rule.remismatches >= minRevisitRate * rule.mismatches && rule.remismatches > 0
+                && mismatchNanosSaved > lookupNanos) {
+                rule.mode = Mode.MISMATCHES;
+            } else {
+                rule.mode = Mode.OFF;
+            }
+        }
+        for (Map.Entry<Matcher, RuleStatistics> entry : rules.entrySet()) {
+            if (entry.getValue().mode == Mode.OFF) entry.setValue(notMemoized);
+        }
+    }
+
+    private void store(int slot, long key, RuleStatistics rule, int end) {
+        if (generations[slot] == generation) {
+            if (keys[slot] == key) {
+                ends[slot] = end;
+                return;
+            }
+            RuleStatistics evicted = memoizedRules.get((int) (keys[slot] >>> 32) - 1);
+            evicted.evictions++;
+            evicted.entries--;
+        }
+        keys[slot] = key;
+        ends[slot] = end;
+        generations[slot] = generation;
+        rule.stores++;
+        if (++rule.entries > rule.peakEntries) rule.peakEntries = rule.entries;
+    }
+}
@@ -0,0 +1,102 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.support.Chars;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.Position;
+
+import java.util.Arrays;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * An {@link InputBuffer} over the end of a text, starting at a given offset
+ *
+ * <p>Index 0 of this buffer is the character at the offset in the text. This
+ * allows to run a rule from the middle of a text while still letting it see
+ * the whole rest of the text, as it would in a full parse. Positions are
+ * those of the whole text.</p>
+ */
+final class OffsetInputBuffer implements InputBuffer {
+
+    private final String text;
+    private final int offset;
+    private final int length;
+    // the indices of the newlines of the whole text, found when first needed
+    private int[] newlines;
+
+    OffsetInputBuffer(String text, int offset) {
+        checkArgNotNull(text, "text");
+        checkArgument(0 <= offset && offset <= text.length());
+        this.text = text;
+        this.offset = offset;
+        length = text.length() - offset;
+    }
+
+    public char charAt(int index) {
+        return 0 <= index && index < length ? text.charAt(offset + index) : Chars.EOI;
+    }
+
+    public boolean test(int index, char[] characters) {
+        int len = characters.length;
+        if (index < 0 || index > length - len) return false;
+        for (int i = 0; i < len; i++) {
+            if (text.charAt(offset + index + i) != characters[i]) return false;
+        }
+        return true;
+    }
+
+    public String extract(int start, int end) {
+        if (start < 0) start = 0;
+        if (end >= length) end = length;
+        if (end <= start) return "";
+        return text.substring(offset + start, offset + end);
+    }
+
+    public String extract(IndexRange range) {
+        return extract(range.start, range.end);
+    }
+
+    public Position getPosition(int index) {
+        buildNewlines();
+        int textIndex = Math.min(offset + index, text.length());
+        int line = getLine0(textIndex);
+        int column = offset + index - (line > 0 ? newlines[line - 1] : -1);
+        return new Position(line + 1, column);
+    }
+
+    public int getOriginalIndex(int index) {
+        return offset + index;
+    }
+
+    public String extractLine(int lineNumber) {
+        buildNewlines();
+        checkArgument(0 < lineNumber && lineNumber <= newlines.length + 1);
+        int start = lineNumber > 1 ? newlines[lineNumber - 2] + 1 : 0;
+        int end = lineNumber <= newlines.length ? newlines[lineNumber - 1] : text.length();
+        if (end > start && text.charAt(end - 1) == '\r') end--;
+        return text.substring(start, end);
+    }
+
+    public int getLineCount() {
+        buildNewlines();
+        return newlines.length + 1;
+    }
+
+    // returns the zero based line number of the text the character with the given index of the text is found in
+    private int getLine0(int textIndex) {
+        int j = Arrays.binarySearch(newlines, textIndex);
+        return j >= 0 ? j : -(j + 1);
+    }
+
+    private void buildNewlines() {
+        if (newlines != null) return;
+        int count = 0;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) count++;
+        int[] lines = new int[count];
+        count = 0;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) lines[count++] = i;
+        newlines = lines;
+    }
+}
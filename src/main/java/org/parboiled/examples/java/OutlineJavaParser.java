@@ -0,0 +1,22 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.Rule;
+
+/**
+ * A {@link JavaDeclarationParser} which skips method bodies and initializers
+ *
+ * <p>Blocks are only reached through method and constructor bodies and
+ * initializers, statements being only found in these, so that matching any
+ * block with a {@link SkippedBlockMatcher} skips all of them, local and
+ * anonymous classes included, while declarations are parsed as before. The
+ * declarations reported are the same as those of a {@link
+ * JavaDeclarationParser}, but the statements of a file are not validated:
+ * use the latter to have them validated as well.</p>
+ */
+public class OutlineJavaParser extends JavaDeclarationParser {
+
+    @Override
+    Rule block() {
+        return new SkippedBlockMatcher();
+    }
+}
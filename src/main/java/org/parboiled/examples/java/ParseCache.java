@@ -0,0 +1,245 @@
+package org.parboiled.examples.java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * An on disk cache of parse outcomes, keyed by the hash of the parsed text
+ *
+ * <p>The cache is only valid for one version of the grammar, identified by
+ * the hash of the bytecode of the classes making it up: when any of them
+ * changes, the cache starts out empty. The number of entries is bounded;
+ * when it is exceeded, the least recently used entries are evicted.</p>
+ *
+ * <p>Only the entries loaded from the file are served: entries put during a
+ * run are held back until the cache is saved, so that parsing the same
+ * files several times in one run parses them every time.</p>
+ *
+ * <p>Only the outcome of a parse is stored (whether it matched, the line
+ * count and the parse errors), not its result: {@link Main} does not build
+ * any value.</p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+final class ParseCache {
+
+    static final class Entry {
+        final boolean matched;
+        final int lineCount;
+        // null if matched
+        final String errors;
+
+        Entry(boolean matched, int lineCount, String errors) {
+            this.matched = matched;
+            this.lineCount = lineCount;
+            this.errors = errors;
+        }
+    }
+
+    private static final int MAGIC = 0x50434301;
+    private static final String HASH_ALGORITHM = "SHA-1";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final File file;
+    private final String grammarVersion;
+    private final Map<String, Entry> entries;
+    // put since loading, not served until saved
+    private final Map<String, Entry> pending = new LinkedHashMap<String, Entry>();
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private ParseCache(File file, String grammarVersion, final int maxEntries) {
+        this.file = file;
+        this.grammarVersion = grammarVersion;
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxEntries) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Load a cache from a file, or create an empty one if the file does not exist or was written for another version
+     * of the grammar
+     *
+     * @param file the cache file
+     * @param maxEntries the maximum number of entries
+     * @param grammarClasses the classes defining the grammar
+     * @return the cache
+     * @throws IOException the cache file exists but cannot be read
+     */
+    static ParseCache load(File file, int maxEntries, Class<?>... grammarClasses) throws IOException {
+        checkArgNotNull(file, "file");
+        checkArgument(maxEntries > 0, "maxEntries must be positive");
+        ParseCache cache = new ParseCache(file, grammarVersion(grammarClasses), maxEntries);
+        if (!file.exists()) return cache;
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || !cache.grammarVersion.equals(in.readUTF())) return cache;
+            int count = in.readInt();
+            // entries are stored least recently used first, so that reading them back restores the access order
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                boolean matched = in.readBoolean();
+                int lineCount = in.readInt();
+                String errors = in.readBoolean() ? readString(in) : null;
+                cache.entries.put(key, new Entry(matched, lineCount, errors));
+            }
+        } finally {
+            in.close();
+        }
+        return cache;
+    }
+
+    /**
+     * Add the entries put since loading to this cache, then write it to its file
+     *
+     * @throws IOException the file cannot be written
+     */
+    synchronized void save() throws IOException {
+        entries.putAll(pending);
+        pending.clear();
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeUTF(grammarVersion);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                out.writeUTF(mapEntry.getKey());
+                out.writeBoolean(entry.matched);
+                out.writeInt(entry.lineCount);
+                out.writeBoolean(entry.errors != null);
+                if (entry.errors != null) writeString(out, entry.errors);
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+            throw new IOException("cannot replace cache file " + file);
+        }
+    }
+
+    /**
+     * @param input the text to parse
+     * @return the cache key for this text
+     */
+    static String keyOf(MappedFileInputBuffer input) {
+        MessageDigest digest = newDigest();
+        byte[] chunk = new byte[8192];
+        int used = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            chunk[used++] = (byte) (c >>> 8);
+            chunk[used++] = (byte) c;
+            if (used == chunk.length) {
+                digest.update(chunk, 0, used);
+                used = 0;
+            }
+        }
+        digest.update(chunk, 0, used);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @param key the key
+     * @return the entry loaded for this key, or null if there is none
+     */
+    synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    synchronized void put(String key, Entry entry) {
+        pending.put(key, entry);
+    }
+
+    synchronized String printStatistics() {
+        long lookups = hits + misses;
+        return String.format("    %6d hits, %6d misses -> %6.2f%% hit rate\n"
+            + "    %6d entries, %6d new, %6d evicted\n", hits, misses, lookups == 0 ? 0.0 : hits * 100.0 / lookups,
+            entries.size(), pending.size(), evictions);
+    }
+
+    /**
+     * @param grammarClasses the classes defining the grammar
+     * @return the hash of the bytecode of these classes
+     * @throws IOException the bytecode of a class cannot be read
+     */
+    static String grammarVersion(Class<?>... grammarClasses) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        for (Class<?> grammarClass : grammarClasses) {
+            String resource = grammarClass.getName().replace('.', '/') + ".class";
+            InputStream in = grammarClass.getClassLoader().getResourceAsStream(resource);
+            if (in == null) throw new IOException("cannot find bytecode of " + grammarClass.getName());
+            try {
+                int count;
+                while ((count = in.read(buffer)) >= 0) digest.update(buffer, 0, count);
+            } finally {
+                in.close();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is always supported", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX_DIGITS[(bytes[i] >>> 4) & 0xf];
+            chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    // DataOutput.writeUTF() is limited to 64k bytes, which parse errors may exceed
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is always supported", e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.parboiled.examples.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rule by rule comparison of two CSV profile exports of {@link JavaParserProfiler}
+ *
+ * <p>Arguments are {@code [-top <n>] [-by time|invocations] <before.csv> <after.csv>}. The {@code -top} rules (20 by
+ * default) whose cost rose most are listed, then those whose cost fell most; the cost of a rule is the time spent in
+ * it by default, or its number of invocations, which is not subject to timing noise. Rules found in only one of the
+ * reports count as having a zero cost in the other one.</p>
+ */
+public final class ProfileDiff {
+
+    private static final class Change {
+        final String rule;
+        final long before;
+        final long after;
+
+        Change(String rule, long before, long after) {
+            this.rule = rule;
+            this.before = before;
+            this.after = after;
+        }
+
+        long delta() {
+            return after - before;
+        }
+    }
+
+    private static final Comparator<Change> BY_DELTA = new Comparator<Change>() {
+        public int compare(Change a, Change b) {
+            long delta = a.delta() - b.delta();
+            return delta < 0 ? -1 : delta > 0 ? 1 : a.rule.compareTo(b.rule);
+        }
+    };
+
+    private ProfileDiff() {
+    }
+
+    public static void main(String[] args) {
+        int top = 20;
+        boolean byTime = true;
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-top".equals(args[i]) && i + 1 < args.length) {
+                top = Math.max(Integer.parseInt(args[++i]), 1);
+            } else if ("-by".equals(args[i]) && i + 1 < args.length) {
+                byTime = !"invocations".equals(args[++i]);
+            } else {
+                files.add(new File(args[i]));
+            }
+        }
+        if (files.size() != 2) {
+            System.out.println("usage: ProfileDiff [-top <n>] [-by time|invocations] <before.csv> <after.csv>");
+            System.exit(1);
+        }
+
+        Map<String, ProfileReports.RuleProfile> before = null;
+        Map<String, ProfileReports.RuleProfile> after = null;
+        try {
+            before = ProfileReports.readCsv(files.get(0));
+            after = ProfileReports.readCsv(files.get(1));
+        } catch (IOException e) {
+            System.out.printf("Could not read profile:\n%s\n", e);
+            System.exit(1);
+        }
+
+        List<Change> changes = new ArrayList<Change>();
+        long totalBefore = 0;
+        long totalAfter = 0;
+        for (ProfileReports.RuleProfile rule : before.values()) {
+            ProfileReports.RuleProfile other = after.get(rule.rule);
+            changes.add(new Change(rule.rule, cost(rule, byTime), other == null ? 0 : cost(other, byTime)));
+            totalBefore += cost(rule, byTime);
+        }
+        for (ProfileReports.RuleProfile rule : after.values()) {
+            if (!before.containsKey(rule.rule)) changes.add(new Change(rule.rule, 0, cost(rule, byTime)));
+            totalAfter += cost(rule, byTime);
+        }
+        Collections.sort(changes, BY_DELTA);
+
+        String unit = byTime ? "time (ms)" : "invocations";
+        System.out.printf("Total %s: %s -> %s (%s)\n", unit, format(totalBefore, byTime), format(totalAfter, byTime),
+            percentage(totalBefore, totalAfter));
+        System.out.printf("\nRules whose %s rose most:\n", unit);
+        printHeader();
+        for (int i = changes.size() - 1; i >= 0 && i >= changes.size() - top && changes.get(i).delta() > 0; i--) {
+            print(changes.get(i), byTime);
+        }
+        System.out.printf("\nRules whose %s fell most:\n", unit);
+        printHeader();
+        for (int i = 0; i < changes.size() && i < top && changes.get(i).delta() < 0; i++) {
+            print(changes.get(i), byTime);
+        }
+    }
+
+    private static long cost(ProfileReports.RuleProfile rule, boolean byTime) {
+        return byTime ? rule.nanos : rule.invocations;
+    }
+
+    private static void printHeader() {
+        System.out.printf("    %14s %14s %14s %9s  %s\n", "before", "after", "delta", "change", "rule");
+    }
+
+    private static void print(Change change, boolean byTime) {
+        System.out.printf("    %14s %14s %14s %9s  %s\n", format(change.before, byTime), format(change.after, byTime),
+            (change.delta() > 0 ? "+" : "") + format(change.delta(), byTime), percentage(change.before, change.after),
+            change.rule);
+    }
+
+    private static String format(long cost, boolean byTime) {
+        return byTime ? String.format("%.3f", cost / 1e6) : String.valueOf(cost);
+    }
+
+    private static String percentage(long before, long after) {
+        if (before == 0) return after == 0 ? "0%" : "new";
+        if (after == 0) return "gone";
+        return String.format("%+.1f%%", (after - before) * 100.0 / before);
+    }
+}
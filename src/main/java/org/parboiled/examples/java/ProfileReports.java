@@ -0,0 +1,221 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.parserunners.ProfilingParseRunner;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Export of {@link ProfilingParseRunner} reports to JSON and CSV
+ *
+ * <p>Both formats hold, for each rule, the number of invocations, matches,
+ * mismatches, re-matches and re-mismatches, and the time spent in the rule in
+ * nanoseconds. The JSON export also holds the report totals. CSV exports can
+ * be read back using {@link #readCsv(File)}, for {@link ProfileDiff} to
+ * compare them.</p>
+ */
+final class ProfileReports {
+
+    static final String CSV_HEADER = "rule,invocations,matches,mismatches,rematches,remismatches,nanos";
+    private static final String UTF_8 = "UTF-8";
+
+    /**
+     * The figures of a single rule
+     */
+    static final class RuleProfile {
+        final String rule;
+        long invocations;
+        long matches;
+        long mismatches;
+        long rematches;
+        long remismatches;
+        long nanos;
+
+        RuleProfile(String rule) {
+            this.rule = rule;
+        }
+
+        void add(RuleProfile other) {
+            invocations += other.invocations;
+            matches += other.matches;
+            mismatches += other.mismatches;
+            rematches += other.rematches;
+            remismatches += other.remismatches;
+            nanos += other.nanos;
+        }
+    }
+
+    private ProfileReports() {
+    }
+
+    static void writeJson(ProfilingParseRunner.Report report, File file) throws IOException {
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8));
+        try {
+            out.println('{');
+            out.printf("  \"totalRuns\": %d,\n", report.totalRuns);
+            out.printf("  \"totalInvocations\": %d,\n", report.totalInvocations);
+            out.printf("  \"totalMatches\": %d,\n", report.totalMatches);
+            out.printf("  \"totalMismatches\": %d,\n", report.totalMismatches);
+            out.printf("  \"reMatches\": %d,\n", report.reMatches);
+            out.printf("  \"reMismatches\": %d,\n", report.reMismatches);
+            out.printf("  \"totalNanoTime\": %d,\n", report.totalNanoTime);
+            out.println("  \"rules\": [");
+            List<RuleProfile> rules = rulesOf(report);
+            for (int i = 0; i < rules.size(); i++) {
+                RuleProfile rule = rules.get(i);
+                out.printf("    {\"rule\": %s, \"invocations\": %d, \"matches\": %d, \"mismatches\": %d, "
+                    + "\"rematches\": %d, \"remismatches\": %d, \"nanos\": %d}%s\n", jsonString(rule.rule),
+                    rule.invocations, rule.matches, rule.mismatches, rule.rematches, rule.remismatches, rule.nanos,
+                    i + 1 < rules.size() ? "," : "");
+            }
+            out.println("  ]");
+            out.println('}');
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) throw new IOException("cannot write " + file);
+    }
+
+    static void writeCsv(ProfilingParseRunner.Report report, File file) throws IOException {
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8));
+        try {
+            out.println(CSV_HEADER);
+            for (RuleProfile rule : rulesOf(report)) {
+                out.printf("%s,%d,%d,%d,%d,%d,%d\n", csvString(rule.rule), rule.invocations, rule.matches,
+                    rule.mismatches, rule.rematches, rule.remismatches, rule.nanos);
+            }
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) throw new IOException("cannot write " + file);
+    }
+
+    /**
+     * Read a CSV export
+     *
+     * <p>Several matchers may have the same label; their figures are added up.</p>
+     *
+     * @param file the file
+     * @return the rule figures, by rule label
+     * @throws IOException the file cannot be read or is not a CSV export
+     */
+    static Map<String, RuleProfile> readCsv(File file) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+        try {
+            if (!CSV_HEADER.equals(in.readLine())) throw new IOException(file + " is not a profile CSV export");
+            Map<String, RuleProfile> rules = new LinkedHashMap<String, RuleProfile>();
+            String line;
+            int lineNumber = 1;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.length() == 0) continue;
+                RuleProfile rule;
+                try {
+                    rule = parseCsvLine(line);
+                } catch (RuntimeException e) {
+                    throw new IOException(String.format("%s, line %d: invalid record", file, lineNumber));
+                }
+                RuleProfile existing = rules.get(rule.rule);
+                if (existing == null) {
+                    rules.put(rule.rule, rule);
+                } else {
+                    existing.add(rule);
+                }
+            }
+            return rules;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static List<RuleProfile> rulesOf(ProfilingParseRunner.Report report) {
+        List<RuleProfile> rules = new ArrayList<RuleProfile>(report.ruleReports.size());
+        for (ProfilingParseRunner.RuleReport ruleReport : report.ruleReports) {
+            RuleProfile rule = new RuleProfile(ruleReport.getMatcher().toString());
+            rule.invocations = ruleReport.getInvocations();
+            rule.matches = ruleReport.getMatches();
+            rule.mismatches = ruleReport.getMismatches();
+            rule.rematches = ruleReport.getRematches();
+            rule.remismatches = ruleReport.getRemismatches();
+            rule.nanos = ruleReport.getNanoTime();
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    // the rule label is always quoted, and the figures never are
+    private static RuleProfile parseCsvLine(String line) {
+        if (line.charAt(0) != '"') throw new IllegalArgumentException();
+        StringBuilder label = new StringBuilder();
+        int i = 1;
+        while (true) {
+            char c = line.charAt(i++);
+            if (c == '"') {
+                if (i < line.length() && line.charAt(i) == '"') {
+                    label.append('"');
+                    i++;
+                } else {
+                    break;
+                }
+            } else {
+                label.append(c);
+            }
+        }
+        String[] figures = line.substring(i + 1).split(",");
+        if (line.charAt(i) != ',' || figures.length != 6) throw new IllegalArgumentException();
+        RuleProfile rule = new RuleProfile(label.toString());
+        rule.invocations = Long.parseLong(figures[0]);
+        rule.matches = Long.parseLong(figures[1]);
+        rule.mismatches = Long.parseLong(figures[2]);
+        rule.rematches = Long.parseLong(figures[3]);
+        rule.remismatches = Long.parseLong(figures[4]);
+        rule.nanos = Long.parseLong(figures[5]);
+        return rule;
+    }
+
+    // line breaks are escaped so that each record stays on one line
+    private static String csvString(String s) {
+        return '"' + s.replace("\"", "\"\"").replace("\r", "\\r").replace("\n", "\\n") + '"';
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
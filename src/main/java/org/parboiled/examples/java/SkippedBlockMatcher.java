@@ -0,0 +1,110 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.MatcherContext;
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.matchers.CustomMatcher;
+import org.parboiled.support.Chars;
+
+/**
+ * Matcher for a block which is skipped rather than parsed
+ *
+ * <p>This matches from a {@code '{'} to the matching {@code '}'}, and the
+ * spacing after it, by counting braces in a single loop. Braces within
+ * comments, string literals and character literals are not counted; these
+ * are lexed as in {@link JavaParser}, so that a block fails to match if one
+ * of them is not terminated, as well as if its braces are not balanced.</p>
+ *
+ * <p>Any valid block is matched as {@link JavaParser#block()} matches it,
+ * but so are invalid ones, as long as their braces and literals are
+ * well-formed: the statements within are not validated.</p>
+ */
+public class SkippedBlockMatcher extends CustomMatcher {
+
+    public SkippedBlockMatcher() {
+        super("block");
+    }
+
+    @Override
+    public final boolean isSingleCharMatcher() {
+        return false;
+    }
+
+    @Override
+    public final boolean canMatchEmpty() {
+        return false;
+    }
+
+    @Override
+    public boolean isStarterChar(char c) {
+        return c == '{';
+    }
+
+    @Override
+    public final char getStarterChar() {
+        return '{';
+    }
+
+    public final <V> boolean match(MatcherContext<V> context) {
+        InputBuffer input = context.getInputBuffer();
+        int start = context.getCurrentIndex();
+        int end = blockEnd(input, start);
+        if (end < 0) return false;
+        context.advanceIndex(JavaSpacingMatcher.spacingEnd(input, end) - start);
+        context.createNode();
+        return true;
+    }
+
+    /**
+     * @param input the input
+     * @param index the index where the block starts
+     * @return the index after the {@code '}'} closing the block, or -1 if there is no block there
+     */
+    static int blockEnd(InputBuffer input, int index) {
+        if (input.charAt(index) != '{') return -1;
+        int depth = 0;
+        while (true) {
+            char c = input.charAt(index);
+            switch (c) {
+                case '{':
+                    depth++;
+                    index++;
+                    break;
+                case '}':
+                    index++;
+                    if (--depth == 0) return index;
+                    break;
+                case '"':
+                case '\'':
+                    index = literalEnd(input, index + 1, c);
+                    if (index < 0) return -1;
+                    break;
+                case '/':
+                    char next = input.charAt(index + 1);
+                    if (next == '*' || next == '/') {
+                        int spacingEnd = JavaSpacingMatcher.spacingEnd(input, index);
+                        if (spacingEnd == index) return -1; // an unterminated comment
+                        index = spacingEnd;
+                    } else {
+                        index++;
+                    }
+                    break;
+                default:
+                    if (c == Chars.EOI) return -1;
+                    index++;
+            }
+        }
+    }
+
+    // returns the index after the closing quote, or -1 if the literal ends with its line
+    private static int literalEnd(InputBuffer input, int index, char quote) {
+        while (true) {
+            char c = input.charAt(index);
+            if (c == quote) return index + 1;
+            if (c == '\\') {
+                c = input.charAt(++index);
+            }
+            if (c == '\r' || c == '\n' || c == Chars.EOI) return -1;
+            index++;
+        }
+    }
+}
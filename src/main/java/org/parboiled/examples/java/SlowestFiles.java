@@ -0,0 +1,79 @@
+package org.parboiled.examples.java;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps track of the files which took the longest to parse
+ *
+ * <p>Instances of this class are not thread safe; instances filled by
+ * separate threads can be combined using {@link #merge(SlowestFiles)}.</p>
+ */
+final class SlowestFiles {
+
+    static final class Entry {
+        final File file;
+        final long characters;
+        final long nanos;
+
+        Entry(File file, long characters, long nanos) {
+            this.file = file;
+            this.characters = characters;
+            this.nanos = nanos;
+        }
+    }
+
+    private static final Comparator<Entry> FASTEST_FIRST = new Comparator<Entry>() {
+        public int compare(Entry e1, Entry e2) {
+            return e1.nanos < e2.nanos ? -1 : e1.nanos == e2.nanos ? 0 : 1;
+        }
+    };
+
+    private final int capacity;
+    // the fastest of the slowest files is at the head, so that it is the one to go when a slower file comes in
+    private final PriorityQueue<Entry> entries;
+
+    SlowestFiles(int capacity) {
+        this.capacity = capacity;
+        entries = new PriorityQueue<Entry>(Math.max(capacity, 1), FASTEST_FIRST);
+    }
+
+    /*
+     * A file may be recorded more than once when it is parsed in several iterations; only its slowest parse is kept.
+     */
+    void record(File file, long characters, long nanos) {
+        if (capacity == 0) return;
+        for (Entry entry : entries) {
+            if (entry.file.equals(file)) {
+                if (entry.nanos >= nanos) return;
+                entries.remove(entry);
+                break;
+            }
+        }
+        if (entries.size() < capacity) {
+            entries.add(new Entry(file, characters, nanos));
+        } else if (entries.peek().nanos < nanos) {
+            entries.poll();
+            entries.add(new Entry(file, characters, nanos));
+        }
+    }
+
+    void merge(SlowestFiles other) {
+        for (Entry entry : other.entries) {
+            record(entry.file, entry.characters, entry.nanos);
+        }
+    }
+
+    /**
+     * @return the recorded files, slowest first
+     */
+    List<Entry> getEntries() {
+        List<Entry> list = new ArrayList<Entry>(entries);
+        Collections.sort(list, Collections.reverseOrder(FASTEST_FIRST));
+        return list;
+    }
+}
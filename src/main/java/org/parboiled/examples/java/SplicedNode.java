@@ -0,0 +1,144 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.Node;
+import org.parboiled.matchers.Matcher;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A parse tree node of an incrementally re-parsed tree
+ *
+ * <p>Such a node is either a view of a node of an earlier tree, with its
+ * indices shifted by a fixed amount, or a copy of such a node with a new list
+ * of children. Children of views are only created on demand, so that shifting
+ * a whole subtree costs one object, whatever its size.</p>
+ *
+ * <p>Views and copies of spliced nodes refer to the node of the original
+ * tree directly, so that neither their depth nor the cost of their getters
+ * grows with the number of edits.</p>
+ *
+ * @param <V> the type of the value field of the parse tree node
+ *
+ * @see IncrementalJavaParser
+ */
+final class SplicedNode<V> implements Node<V> {
+
+    // never a SplicedNode itself, so that getters do not recurse however many edits the tree went through
+    private final Node<V> source;
+    private final int startDelta;
+    private final int endDelta;
+    private final Node<V> parent;
+    // for views, the children to shift by childDelta on demand; null for copies, whose children are given
+    private final List<Node<V>> sourceChildren;
+    private final int childDelta;
+    private List<Node<V>> children;
+
+    private SplicedNode(Node<V> source, int startDelta, int endDelta, Node<V> parent, List<Node<V>> sourceChildren,
+                        int childDelta, List<Node<V>> children) {
+        this.source = source;
+        this.startDelta = startDelta;
+        this.endDelta = endDelta;
+        this.parent = parent;
+        this.sourceChildren = sourceChildren;
+        this.childDelta = childDelta;
+        this.children = children;
+    }
+
+    /**
+     * @param node the node
+     * @param delta the amount to add to the start and end indices of the node and all of its descendants
+     * @param parent the parent of the new node
+     * @param <V> the type of the value field of the parse tree node
+     * @return a view of the given node
+     */
+    static <V> Node<V> shift(Node<V> node, int delta, Node<V> parent) {
+        if (node instanceof SplicedNode) {
+            // go straight to the original node, shifting the children of the spliced one
+            SplicedNode<V> spliced = (SplicedNode<V>) node;
+            if (spliced.sourceChildren != null) {
+                return new SplicedNode<V>(spliced.source, spliced.startDelta + delta, spliced.endDelta + delta,
+                    parent, spliced.sourceChildren, spliced.childDelta + delta, null);
+            }
+            return new SplicedNode<V>(spliced.source, spliced.startDelta + delta, spliced.endDelta + delta, parent,
+                spliced.children, delta, null);
+        }
+        return new SplicedNode<V>(node, delta, delta, parent, node.getChildren(), delta, null);
+    }
+
+    /**
+     * @param node the node
+     * @param delta the amount to add to the end index of the node
+     * @param parent the parent of the new node
+     * @param children the new children
+     * @param <V> the type of the value field of the parse tree node
+     * @return a copy of the given node with the given children
+     */
+    static <V> SplicedNode<V> withChildren(Node<V> node, int delta, Node<V> parent, List<Node<V>> children) {
+        if (node instanceof SplicedNode) {
+            // a copy of a view or of a copy: go straight to the original node
+            SplicedNode<V> spliced = (SplicedNode<V>) node;
+            return new SplicedNode<V>(spliced.source, spliced.startDelta, spliced.endDelta + delta, parent, null, 0,
+                children);
+        }
+        return new SplicedNode<V>(node, 0, delta, parent, null, 0, children);
+    }
+
+    public Matcher getMatcher() {
+        return source.getMatcher();
+    }
+
+    public String getLabel() {
+        return source.getLabel();
+    }
+
+    public int getStartIndex() {
+        return source.getStartIndex() + startDelta;
+    }
+
+    public int getEndIndex() {
+        return source.getEndIndex() + endDelta;
+    }
+
+    public V getValue() {
+        return source.getValue();
+    }
+
+    public boolean hasError() {
+        return source.hasError();
+    }
+
+    public Node<V> getParent() {
+        return parent;
+    }
+
+    public List<Node<V>> getChildren() {
+        if (children == null) {
+            children = new AbstractList<Node<V>>() {
+                private final Object[] views = new Object[sourceChildren.size()];
+
+                @SuppressWarnings("unchecked")
+                @Override
+                public Node<V> get(int index) {
+                    Object view = views[index];
+                    if (view == null) {
+                        view = shift(sourceChildren.get(index), childDelta, SplicedNode.this);
+                        views[index] = view;
+                    }
+                    return (Node<V>) view;
+                }
+
+                @Override
+                public int size() {
+                    return views.length;
+                }
+            };
+        }
+        return children;
+    }
+
+    @Override
+    public String toString() {
+        return getLabel() + " [" + getStartIndex() + ", " + getEndIndex() + ']';
+    }
+}
@@ -0,0 +1,257 @@
+package org.parboiled.examples.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An index of the types, methods and fields declared in a set of Java
+ * sources, as written by a {@link SymbolIndexBuilder}, memory mapped for
+ * queries
+ *
+ * <p>The index file holds, after a header of counts:</p>
+ * <ul>
+ *     <li>the table of files: their lengths and modification times, as
+ *     longs, then their paths, as int offsets into the UTF-8 bytes of all
+ *     paths, followed by these bytes;</li>
+ *     <li>the table of names, sorted by their UTF-8 bytes, likewise as int
+ *     offsets followed by bytes;</li>
+ *     <li>the posting lists of the names: int offsets into the declarations,
+ *     each of which takes three ints, its file and kind, its start and its
+ *     end.</li>
+ * </ul>
+ *
+ * <p>A name is looked up by binary search over the bytes of the mapped
+ * file, so that opening an index reads nothing but its header, and a query
+ * only creates the declarations it returns. Declaration ranges are indices
+ * of characters, not bytes, in the files as they were decoded when
+ * indexed.</p>
+ */
+public final class SymbolIndex {
+
+    static final int MAGIC = 0x4A53594D; // "JSYM"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 7 * 4;
+    static final int KIND_BITS = 3;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public enum Kind {
+        CLASS, INTERFACE, ENUM, ANNOTATION, METHOD, CONSTRUCTOR, FIELD
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    /**
+     * The declaration of a name
+     */
+    public static final class Declaration {
+        private final String name;
+        private final String file;
+        private final Kind kind;
+        private final int start;
+        private final int end;
+
+        Declaration(String name, String file, Kind kind, int start, int end) {
+            this.name = name;
+            this.file = file;
+            this.kind = kind;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s in '%s' @%d-%d", kind.name().toLowerCase(), name, file, start, end);
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int fileCount;
+    private final int nameCount;
+    private final int declarationCount;
+    private final int fileLengths;
+    private final int fileTimes;
+    private final int pathOffsets;
+    private final int pathBytes;
+    private final int nameOffsets;
+    private final int nameBytes;
+    private final int postingOffsets;
+    private final int declarations;
+
+    private SymbolIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a symbol index, or one of another version");
+        }
+        fileCount = buffer.getInt(8);
+        nameCount = buffer.getInt(12);
+        declarationCount = buffer.getInt(16);
+        fileLengths = HEADER_SIZE;
+        fileTimes = fileLengths + 8 * fileCount;
+        pathOffsets = fileTimes + 8 * fileCount;
+        pathBytes = pathOffsets + 4 * (fileCount + 1);
+        nameOffsets = pathBytes + buffer.getInt(20);
+        nameBytes = nameOffsets + 4 * (nameCount + 1);
+        postingOffsets = nameBytes + buffer.getInt(24);
+        declarations = postingOffsets + 4 * (nameCount + 1);
+        if (declarations + 12L * declarationCount != buffer.capacity()) {
+            throw new IOException("Truncated symbol index");
+        }
+    }
+
+    /**
+     * Maps the given index file into memory; the file is not kept open
+     *
+     * @throws IOException the file cannot be read, or is not an index
+     */
+    public static SymbolIndex open(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            return new SymbolIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            input.close();
+        }
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public String getFile(int file) {
+        return string(pathOffsets, pathBytes, file);
+    }
+
+    public long getFileLength(int file) {
+        return buffer.getLong(fileLengths + 8 * file);
+    }
+
+    public long getFileLastModified(int file) {
+        return buffer.getLong(fileTimes + 8 * file);
+    }
+
+    /**
+     * @return the number of distinct names
+     */
+    public int getNameCount() {
+        return nameCount;
+    }
+
+    /**
+     * @param name an index between 0 and {@link #getNameCount()}, in the order of names
+     */
+    public String getName(int name) {
+        return string(nameOffsets, nameBytes, name);
+    }
+
+    /**
+     * @return the declarations of the given name, in no particular order
+     */
+    public List<Declaration> find(String name) {
+        int found = search(name.getBytes(UTF8));
+        return found < 0 ? new ArrayList<Declaration>() : getDeclarations(found);
+    }
+
+    /**
+     * @param name an index between 0 and {@link #getNameCount()}
+     * @return the declarations of the name
+     */
+    public List<Declaration> getDeclarations(int name) {
+        String string = getName(name);
+        int to = declarationsTo(name);
+        List<Declaration> found = new ArrayList<Declaration>(to - declarationsFrom(name));
+        for (int i = declarationsFrom(name); i < to; i++) {
+            found.add(new Declaration(string, getFile(declarationFile(i)), declarationKind(i), declarationStart(i),
+                declarationEnd(i)));
+        }
+        return found;
+    }
+
+    // the declarations of a name are those from declarationsFrom(name) to declarationsTo(name), exclusive
+
+    int declarationsFrom(int name) {
+        return buffer.getInt(postingOffsets + 4 * name);
+    }
+
+    int declarationsTo(int name) {
+        return buffer.getInt(postingOffsets + 4 * (name + 1));
+    }
+
+    int declarationFile(int declaration) {
+        return buffer.getInt(declarations + 12 * declaration) >>> KIND_BITS;
+    }
+
+    Kind declarationKind(int declaration) {
+        return KINDS[buffer.getInt(declarations + 12 * declaration) & ((1 << KIND_BITS) - 1)];
+    }
+
+    int declarationStart(int declaration) {
+        return buffer.getInt(declarations + 12 * declaration + 4);
+    }
+
+    int declarationEnd(int declaration) {
+        return buffer.getInt(declarations + 12 * declaration + 8);
+    }
+
+    // returns the index of the name with the given bytes, or -1 if there is none
+    private int search(byte[] name) {
+        int low = 0;
+        int high = nameCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(middle, name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // compares the bytes of a name of the index with the given ones, as unsigned bytes
+    private int compare(int name, byte[] bytes) {
+        int start = nameBytes + buffer.getInt(nameOffsets + 4 * name);
+        int length = nameBytes + buffer.getInt(nameOffsets + 4 * (name + 1)) - start;
+        int common = Math.min(length, bytes.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (buffer.get(start + i) & 0xFF) - (bytes[i] & 0xFF);
+            if (difference != 0) return difference;
+        }
+        return length - bytes.length;
+    }
+
+    private String string(int offsets, int bytes, int index) {
+        int start = buffer.getInt(offsets + 4 * index);
+        byte[] string = new byte[buffer.getInt(offsets + 4 * (index + 1)) - start];
+        for (int i = 0; i < string.length; i++) string[i] = buffer.get(bytes + start + i);
+        return new String(string, UTF8);
+    }
+}
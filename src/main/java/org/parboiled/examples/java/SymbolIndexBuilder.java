@@ -0,0 +1,185 @@
+package org.parboiled.examples.java;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.parboiled.examples.java.SymbolIndex.KIND_BITS;
+import static org.parboiled.examples.java.SymbolIndex.UTF8;
+
+/**
+ * Collects files and the declarations within them, then writes them as a
+ * {@link SymbolIndex}
+ *
+ * <p>Declarations are kept in parallel arrays of ints until written, names
+ * being numbered as they first come.</p>
+ */
+final class SymbolIndexBuilder {
+
+    private final List<String> files = new ArrayList<String>();
+    private long[] fileLengths = new long[256];
+    private long[] fileTimes = new long[256];
+    private final Map<String, Integer> nameIds = new HashMap<String, Integer>();
+    private final List<String> names = new ArrayList<String>();
+    private int[] declarationNames = new int[1024];
+    private int[] fileAndKinds = new int[1024];
+    private int[] starts = new int[1024];
+    private int[] ends = new int[1024];
+    private int declarationCount;
+
+    /**
+     * @return the number the file is given in the index
+     */
+    int addFile(String path, long length, long lastModified) {
+        int file = files.size();
+        if (file == fileLengths.length) {
+            fileLengths = copyOf(fileLengths, file * 2);
+            fileTimes = copyOf(fileTimes, file * 2);
+        }
+        files.add(path);
+        fileLengths[file] = length;
+        fileTimes[file] = lastModified;
+        return file;
+    }
+
+    int getFileCount() {
+        return files.size();
+    }
+
+    int getDeclarationCount() {
+        return declarationCount;
+    }
+
+    /**
+     * @return the number of the declaration, for {@link #setEnd(int, int)}
+     */
+    int add(String name, int file, SymbolIndex.Kind kind, int start, int end) {
+        Integer nameId = nameIds.get(name);
+        if (nameId == null) {
+            nameId = names.size();
+            names.add(name);
+            nameIds.put(name, nameId);
+        }
+        if (declarationCount == starts.length) {
+            int capacity = declarationCount * 2;
+            declarationNames = copyOf(declarationNames, capacity);
+            fileAndKinds = copyOf(fileAndKinds, capacity);
+            starts = copyOf(starts, capacity);
+            ends = copyOf(ends, capacity);
+        }
+        declarationNames[declarationCount] = nameId;
+        fileAndKinds[declarationCount] = file << KIND_BITS | kind.ordinal();
+        starts[declarationCount] = start;
+        ends[declarationCount] = end;
+        return declarationCount++;
+    }
+
+    void setEnd(int declaration, int end) {
+        ends[declaration] = end;
+    }
+
+    /**
+     * Writes the index to a temporary file first, which then replaces the
+     * given one, so that readers never see a partly written index
+     */
+    void write(File indexFile) throws IOException {
+        // names sorted by their bytes, as searched by SymbolIndex
+        final byte[][] nameBytes = new byte[names.size()][];
+        Integer[] order = new Integer[names.size()];
+        for (int i = 0; i < order.length; i++) {
+            nameBytes[i] = names.get(i).getBytes(UTF8);
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return compareBytes(nameBytes[a], nameBytes[b]);
+            }
+        });
+        int[] ranks = new int[order.length];
+        for (int i = 0; i < order.length; i++) ranks[order[i]] = i;
+
+        // counting sort of the declarations by the rank of their name
+        int[] postingOffsets = new int[order.length + 1];
+        for (int i = 0; i < declarationCount; i++) postingOffsets[ranks[declarationNames[i]] + 1]++;
+        for (int i = 0; i < order.length; i++) postingOffsets[i + 1] += postingOffsets[i];
+        int[] sorted = new int[declarationCount];
+        int[] next = postingOffsets.clone();
+        for (int i = 0; i < declarationCount; i++) sorted[next[ranks[declarationNames[i]]]++] = i;
+
+        byte[][] pathBytes = new byte[files.size()][];
+        for (int i = 0; i < pathBytes.length; i++) pathBytes[i] = files.get(i).getBytes(UTF8);
+
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            output.writeInt(SymbolIndex.MAGIC);
+            output.writeInt(SymbolIndex.VERSION);
+            output.writeInt(files.size());
+            output.writeInt(order.length);
+            output.writeInt(declarationCount);
+            output.writeInt(totalLength(pathBytes));
+            output.writeInt(totalLength(nameBytes));
+            for (int i = 0; i < files.size(); i++) output.writeLong(fileLengths[i]);
+            for (int i = 0; i < files.size(); i++) output.writeLong(fileTimes[i]);
+            writeStrings(output, pathBytes, null);
+            writeStrings(output, nameBytes, order);
+            for (int offset : postingOffsets) output.writeInt(offset);
+            for (int declaration : sorted) {
+                output.writeInt(fileAndKinds[declaration]);
+                output.writeInt(starts[declaration]);
+                output.writeInt(ends[declaration]);
+            }
+        } finally {
+            output.close();
+        }
+        if (indexFile.exists() && !indexFile.delete() || !tempFile.renameTo(indexFile)) {
+            throw new IOException(String.format("Could not replace '%s' with '%s'", indexFile, tempFile));
+        }
+    }
+
+    // writes the offsets then the bytes of the given strings, in the given order if any
+    private static void writeStrings(DataOutputStream output, byte[][] strings, Integer[] order) throws IOException {
+        int offset = 0;
+        output.writeInt(offset);
+        for (int i = 0; i < strings.length; i++) {
+            offset += strings[order == null ? i : order[i]].length;
+            output.writeInt(offset);
+        }
+        for (int i = 0; i < strings.length; i++) output.write(strings[order == null ? i : order[i]]);
+    }
+
+    private static int totalLength(byte[][] strings) {
+        int length = 0;
+        for (byte[] string : strings) length += string.length;
+        return length;
+    }
+
+    static int compareBytes(byte[] a, byte[] b) {
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (difference != 0) return difference;
+        }
+        return a.length - b.length;
+    }
+
+    private static int[] copyOf(int[] array, int capacity) {
+        int[] copy = new int[capacity];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, capacity));
+        return copy;
+    }
+
+    private static long[] copyOf(long[] array, int capacity) {
+        long[] copy = new long[capacity];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, capacity));
+        return copy;
+    }
+}
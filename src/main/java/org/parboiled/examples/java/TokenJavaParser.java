@@ -0,0 +1,112 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.Rule;
+import org.parboiled.annotations.DontLabel;
+import org.parboiled.annotations.SuppressNode;
+import org.parboiled.annotations.SuppressSubnodes;
+
+import static org.parboiled.examples.java.JavaTokenizer.CHAR_LITERAL;
+import static org.parboiled.examples.java.JavaTokenizer.FLOAT_LITERAL;
+import static org.parboiled.examples.java.JavaTokenizer.GT_JOINED;
+import static org.parboiled.examples.java.JavaTokenizer.GT_LAST;
+import static org.parboiled.examples.java.JavaTokenizer.IDENTIFIER;
+import static org.parboiled.examples.java.JavaTokenizer.INTEGER_LITERAL;
+import static org.parboiled.examples.java.JavaTokenizer.STRING_LITERAL;
+import static org.parboiled.examples.java.JavaTokenizer.kindOf;
+
+/**
+ * The Java grammar, over the tokens of a {@link JavaTokenBuffer}
+ *
+ * <p>Each token being a single character of its kind, the lexical rules of
+ * {@link JavaParser} come down to single character matches: spacing is gone,
+ * and keywords, operators, identifiers and literals each match one token of
+ * the right kind. The syntactic rules are unchanged.</p>
+ *
+ * <p>As {@link JavaTokenizer} splits {@code >>} and {@code >>>} into single
+ * {@code >} tokens, a closing type argument bracket is any {@code >} token,
+ * while the {@code >}, {@code >>} and {@code >>>} operators are made of {@code
+ * >} tokens which are contiguous in the source.</p>
+ *
+ * <p>Since the tokenizer works on a {@link UnicodeEscapeInputBuffer}, unicode
+ * escapes are always translated in this mode.</p>
+ */
+public class TokenJavaParser extends JavaParser {
+
+    private static final String IDENTIFIER_KINDS = IDENTIFIER + kindsOf(JavaTokenizer.IDENTIFIER_WORDS);
+
+    private static final String BASIC_TYPE_KINDS = kindsOf("byte", "short", "char", "int", "long", "float", "double",
+        "boolean");
+
+    private static final String MODIFIER_KINDS = kindsOf("public", "protected", "private", "static", "abstract",
+        "final", "native", "synchronized", "transient", "volatile", "strictfp");
+
+    private static final String LITERAL_KINDS = "" + FLOAT_LITERAL + INTEGER_LITERAL + CHAR_LITERAL + STRING_LITERAL
+        + kindsOf("true", "false", "null");
+
+    @Override
+    @SuppressNode
+    Rule spacing() {
+        return EMPTY;
+    }
+
+    @Override
+    @SuppressSubnodes
+    Rule identifier() {
+        return anyOf(IDENTIFIER_KINDS).label("identifier");
+    }
+
+    @Override
+    Rule basicType() {
+        return anyOf(BASIC_TYPE_KINDS).label("basicType");
+    }
+
+    @Override
+    Rule modifier() {
+        return firstOf(annotation(), anyOf(MODIFIER_KINDS));
+    }
+
+    @Override
+    Rule literal() {
+        return anyOf(LITERAL_KINDS).label("literal");
+    }
+
+    @Override
+    @SuppressNode
+    @DontLabel
+    Rule keyword(String keyword) {
+        return ch(kindOf(keyword)).label('\'' + keyword + '\'');
+    }
+
+    // a closing type argument bracket, with or without another '>' right after it
+    @Override
+    @SuppressNode
+    @DontLabel
+    Rule terminal(String string) {
+        if (">".equals(string)) return anyOf(new String(new char[] {GT_JOINED, GT_LAST})).label("'>'");
+        return ch(kindOf(string)).label('\'' + string + '\'');
+    }
+
+    // a '>' followed by '=' is part of a single token, so only '>' needs checking
+    @Override
+    @SuppressNode
+    @DontLabel
+    Rule terminal(String string, Rule mustNotFollow) {
+        Rule rule;
+        if (">".equals(string)) {
+            rule = ch(GT_LAST);
+        } else if (">>".equals(string)) {
+            rule = sequence(GT_JOINED, GT_LAST);
+        } else if (">>>".equals(string)) {
+            rule = sequence(GT_JOINED, GT_JOINED, anyOf(new String(new char[] {GT_JOINED, GT_LAST})));
+        } else {
+            rule = ch(kindOf(string));
+        }
+        return rule.label('\'' + string + '\'');
+    }
+
+    private static String kindsOf(String... spellings) {
+        StringBuilder kinds = new StringBuilder();
+        for (String spelling : spellings) kinds.append(kindOf(spelling));
+        return kinds.toString();
+    }
+}
@@ -0,0 +1,25 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.Rule;
+
+/**
+ * The Java grammar, for input whose unicode escapes are already translated
+ *
+ * <p>To be run over a {@link UnicodeEscapeInputBuffer}. Since letters and
+ * digits can then no longer be written as unicode escapes, {@link #letter()}
+ * and {@link #letterOrDigit()} come down to their character matchers, without
+ * first checking for a backslash.</p>
+ */
+public class TranslatedJavaParser extends JavaParser {
+
+    @Override
+    Rule letter() {
+        return new JavaLetterMatcher();
+    }
+
+    // a single bitset lookup for most characters; memoizing its mismatches would cost more than it saves
+    @Override
+    Rule letterOrDigit() {
+        return new JavaLetterOrDigitMatcher();
+    }
+}
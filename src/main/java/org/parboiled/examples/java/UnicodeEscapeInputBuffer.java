@@ -0,0 +1,158 @@
+package org.parboiled.examples.java;
+
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.support.Chars;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.Position;
+
+import static org.parboiled.common.Preconditions.checkArgNotNull;
+import static org.parboiled.common.Preconditions.checkArgument;
+
+/**
+ * An {@link InputBuffer} over Java source text with its unicode escapes
+ * translated, as per JLS 3.3
+ *
+ * <p>A backslash starts a unicode escape if it is preceded by an even number
+ * of contiguous backslashes, and followed by one or more {@code u} and four
+ * hexadecimal digits; the escape then reads as the single character it
+ * denotes. Characters resulting from an escape do not start escapes
+ * themselves. Malformed escapes are left as is.</p>
+ *
+ * <p>Indices of this buffer are mapped back to those of the original text:
+ * positions, lines and extracted text are those of the original text, so
+ * that parse errors and the text of parse tree nodes refer to the actual
+ * source. When the text has no unicode escapes, which is the common case,
+ * no copy of it is made.</p>
+ *
+ * @see TranslatedJavaParser
+ */
+public final class UnicodeEscapeInputBuffer implements InputBuffer {
+
+    private final InputBuffer source;
+    private final int length;
+    // both null if the source has no unicode escapes
+    private final char[] chars;
+    // the index in the source of each translated character, then the source length
+    private final int[] sourceIndices;
+
+    /**
+     * @param source the original text
+     * @param sourceLength the length of the original text
+     */
+    public UnicodeEscapeInputBuffer(InputBuffer source, int sourceLength) {
+        checkArgNotNull(source, "source");
+        checkArgument(sourceLength >= 0, "sourceLength must not be negative");
+        this.source = source;
+        if (firstEscape(source, sourceLength) < 0) {
+            length = sourceLength;
+            chars = null;
+            sourceIndices = null;
+            return;
+        }
+
+        chars = new char[sourceLength];
+        sourceIndices = new int[sourceLength + 1];
+        int n = 0;
+        int backslashes = 0;
+        int i = 0;
+        while (i < sourceLength) {
+            char c = source.charAt(i);
+            sourceIndices[n] = i;
+            int end = backslashes % 2 == 0 ? escapeEnd(source, i, sourceLength) : -1;
+            if (end < 0) {
+                chars[n++] = c;
+                backslashes = c == '\\' ? backslashes + 1 : 0;
+                i++;
+            } else {
+                chars[n++] = (char) Integer.parseInt(source.extract(end - 4, end), 16);
+                backslashes = 0;
+                i = end;
+            }
+        }
+        sourceIndices[n] = sourceLength;
+        length = n;
+    }
+
+    /**
+     * @return the length of the translated text
+     */
+    public int length() {
+        return length;
+    }
+
+    public char charAt(int index) {
+        if (index < 0 || index >= length) return Chars.EOI;
+        return chars == null ? source.charAt(index) : chars[index];
+    }
+
+    public boolean test(int index, char[] characters) {
+        int len = characters.length;
+        if (index < 0 || index > length - len) return false;
+        for (int i = 0; i < len; i++) {
+            if (charAt(index + i) != characters[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Note that this extracts the original text, unicode escapes included
+     */
+    public String extract(int start, int end) {
+        if (start < 0) start = 0;
+        if (end > length) end = length;
+        if (end <= start) return "";
+        return source.extract(sourceIndexOf(start), sourceIndexOf(end));
+    }
+
+    public String extract(IndexRange range) {
+        return extract(range.start, range.end);
+    }
+
+    public Position getPosition(int index) {
+        return source.getPosition(sourceIndexOf(index));
+    }
+
+    public int getOriginalIndex(int index) {
+        return source.getOriginalIndex(sourceIndexOf(index));
+    }
+
+    public String extractLine(int lineNumber) {
+        return source.extractLine(lineNumber);
+    }
+
+    public int getLineCount() {
+        return source.getLineCount();
+    }
+
+    private int sourceIndexOf(int index) {
+        if (sourceIndices == null || index < 0) return index;
+        return index <= length ? sourceIndices[index] : sourceIndices[length] + index - length;
+    }
+
+    // escapes are rare, so the common case is a single scan without any copy
+    private static int firstEscape(InputBuffer source, int sourceLength) {
+        int backslashes = 0;
+        for (int i = 0; i < sourceLength; i++) {
+            char c = source.charAt(i);
+            if (c != '\\') {
+                backslashes = 0;
+            } else if (backslashes++ % 2 == 0 && escapeEnd(source, i, sourceLength) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // returns the index after the unicode escape starting with the backslash at the index, or -1 if there is none
+    private static int escapeEnd(InputBuffer source, int index, int sourceLength) {
+        if (source.charAt(index) != '\\' || index + 1 >= sourceLength || source.charAt(index + 1) != 'u') return -1;
+        int i = index + 2;
+        while (i < sourceLength && source.charAt(i) == 'u') i++;
+        if (i + 4 > sourceLength) return -1;
+        for (int end = i + 4; i < end; i++) {
+            char c = source.charAt(i);
+            if (!('0' <= c && c <= '9' || 'a' <= c && c <= 'f' || 'A' <= c && c <= 'F')) return -1;
+        }
+        return i;
+    }
+}
@@ -1,12 +1,12 @@
 package org.parboiled.examples.json;
 
 import org.parboiled.BaseParser;
-import org.parboiled.Parboiled;
 import org.parboiled.Rule;
 import org.parboiled.annotations.BuildParseTree;
 import org.parboiled.annotations.Cached;
 import org.parboiled.annotations.DontExtend;
 import org.parboiled.errors.ErrorUtils;
+import org.parboiled.examples.ParserClassCache;
 import org.parboiled.examples.doublequotedstring.DoubleQuotedString;
 import org.parboiled.parserunners.ReportingParseRunner;
 import org.parboiled.support.ParseTreeUtils;
@@ -145,7 +145,7 @@ public class JsonParser
     public static void main(final String... args)
     {
         final JsonParser parser
-            = Parboiled.createParser(JsonParser.class);
+            = ParserClassCache.createParser(JsonParser.class);
 
         final Scanner scanner = new Scanner(System.in);
         ParsingResult<?> result;